@@ -0,0 +1,100 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.async.AsyncOrderQueue;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 처리량 : 동기(order, orderWithStockReservation) vs 비동기 큐
+ *
+ * ./gradlew jmh -PjmhIncludes=AsyncOrderBenchmark
+ * - async_accept : 접수만(요청 스레드가 기다리는 시간), 큐가 차서 거절된 건 rejected로 센다.
+ * - async_sustained : 거절되면 자리가 날 때까지 재시도. 큐가 찬 뒤에는 워커가 커밋하는 속도 = 실제 처리량
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AsyncOrderBenchmark {
+
+    @Param({"100"})
+    int members;
+    @Param({"100"})
+    int items;
+    @Param({"10000"})
+    int capacity;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private AsyncOrderQueue asyncOrderQueue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("asyncorder",
+                "--jpashop.async-order.enabled=true",
+                "--jpashop.async-order.capacity=" + capacity,
+                "--jpashop.cache.order-dto.maximum-size=0");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), members, items, 0, 0);
+        orderService = context.getBean(OrderService.class);
+        asyncOrderQueue = context.getBean(AsyncOrderQueue.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rejected {
+        public long rejected;
+    }
+
+    @Benchmark
+    public Long sync_order() {
+        return orderService.order(randomMemberId(), randomItemId(), 1);
+    }
+
+    @Benchmark
+    public Long sync_orderWithStockReservation() {
+        return orderService.orderWithStockReservation(randomMemberId(), randomItemId(), 1);
+    }
+
+    @Benchmark
+    public String async_accept(Rejected counter) {
+        try {
+            return asyncOrderQueue.submit(randomMemberId(), randomItemId(), 1);
+        } catch (OrderQueueFullException e) {
+            counter.rejected++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public String async_sustained() {
+        while (true) {
+            try {
+                return asyncOrderQueue.submit(randomMemberId(), randomItemId(), 1);
+            } catch (OrderQueueFullException e) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private long randomMemberId() {
+        return BenchmarkData.ID_BASE + ThreadLocalRandom.current().nextInt(members) + 1;
+    }
+
+    private long randomItemId() {
+        return BenchmarkData.ID_BASE + ThreadLocalRandom.current().nextInt(items) + 1;
+    }
+}
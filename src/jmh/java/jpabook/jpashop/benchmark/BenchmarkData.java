@@ -0,0 +1,32 @@
+package jpabook.jpashop.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 벤치마크 데이터 적재 (H2 system_range로 한번에 insert)
+ * initDb가 시퀀스로 넣은 데이터와 안 겹치게 id는 ID_BASE부터 쓴다.
+ * 주문 n번 : 회원 (n % members)번, 주문상품 itemsPerOrder개, 상품은 돌아가면서
+ */
+public final class BenchmarkData {
+
+    public static final long ID_BASE = 1_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    public static void seed(JdbcTemplate jdbc, int members, int items, int orders, int itemsPerOrder) {
+        jdbc.update("insert into member (member_id, name, city, street, zipcode) " +
+                "select ? + x, concat('member', x), '서울', '강가', '123-123' from system_range(1, ?)", ID_BASE, members);
+        jdbc.update("insert into item (dtype, item_id, name, price, stock_quantity) " +
+                "select 'B', ? + x, concat('item', x), 10000, 1000000000 from system_range(1, ?)", ID_BASE, items);
+        jdbc.update("insert into delivery (delivery_id, city, street, zipcode, status) " +
+                "select ? + x, '서울', '강가', '123-123', 'READY' from system_range(1, ?)", ID_BASE, orders);
+        jdbc.update("insert into orders (order_id, member_id, delivery_id, order_date, status) " +
+                        "select ? + x, ? + mod(x, ?) + 1, ? + x, dateadd('SECOND', x, timestamp '2000-01-01 00:00:00'), 'ORDER' " +
+                        "from system_range(1, ?)",
+                ID_BASE, ID_BASE, members, ID_BASE, orders);
+        jdbc.update("insert into order_item (order_item_id, order_id, item_id, order_price, count) " +
+                        "select ? + x, ? + (x - 1) / ? + 1, ? + mod(x, ?) + 1, 10000, 1 from system_range(1, ?)",
+                ID_BASE, ID_BASE, itemsPerOrder, ID_BASE, items, (long) orders * itemsPerOrder);
+    }
+}
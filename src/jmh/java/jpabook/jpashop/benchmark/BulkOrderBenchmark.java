@@ -0,0 +1,81 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.BulkOrderDto;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대량 주문 처리량 : bulkOrder vs order() 반복 (주문마다 트랜잭션)
+ *
+ * ./gradlew jmh -PjmhIncludes=BulkOrderBenchmark
+ * 호출 1번에 주문 ORDERS건이라 점수는 초당 주문 건수(rows/s)다.
+ * 주문 1건은 주문상품 1개 (orders, delivery, order_item 한 row씩, order_summary는 양쪽 다 OrderSummaryListener가)
+ * 재고는 안 떨어지게 넉넉히 둔다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BulkOrderBenchmark {
+
+    private static final int ORDERS = 1000;
+
+    @Param({"100"})
+    int members;
+    @Param({"100"})
+    int items;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("bulkorder",
+                "--jpashop.cache.order-dto.maximum-size=0");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), members, items, 0, 0);
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public List<Long> bulkOrder() {
+        List<BulkOrderDto> requests = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            requests.add(new BulkOrderDto(randomMemberId(), List.of(new BulkOrderDto.Line(randomItemId(), 1))));
+        }
+        return orderService.bulkOrder(requests);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public List<Long> orderLoop() {
+        List<Long> orderIds = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orderIds.add(orderService.order(randomMemberId(), randomItemId(), 1));
+        }
+        return orderIds;
+    }
+
+    private long randomMemberId() {
+        return BenchmarkData.ID_BASE + ThreadLocalRandom.current().nextInt(members) + 1;
+    }
+
+    private long randomItemId() {
+        return BenchmarkData.ID_BASE + ThreadLocalRandom.current().nextInt(items) + 1;
+    }
+}
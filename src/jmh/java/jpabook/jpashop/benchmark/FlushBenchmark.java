@@ -0,0 +1,78 @@
+package jpabook.jpashop.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 영속성 컨텍스트에 엔티티가 많을 때 flush 비용 : 주문 하나만 바꾸고 flush
+ *
+ * 향상 없으면 flush 때 관리 중인 엔티티 전부를 로딩 시점 스냅샷과 필드별로 비교한다.
+ * dirty tracking 향상이면 엔티티가 바뀐 필드를 들고 있어서 바뀐 것만 본다.
+ * ./gradlew jmh -PjmhIncludes=FlushBenchmark                  향상
+ * ./gradlew jmh -PjmhIncludes=FlushBenchmark -PnoEnhancement  향상 없이 (둘을 비교)
+ * 로딩/롤백은 Level.Invocation 준비/정리라 안 잰다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FlushBenchmark {
+
+    @Param({"1000", "10000"})
+    int orders;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private List<Order> loaded;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("flush");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), 50, 20, orders, 1);
+        emf = context.getBean(EntityManagerFactory.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 주문 + 회원 + 배송 + 주문상품을 영속성 컨텍스트에 올려둔다.
+     */
+    @Setup(Level.Invocation)
+    public void load() {
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        loaded = em.createQuery(
+                "select o from Order o join fetch o.member join fetch o.delivery", Order.class)
+                .getResultList();
+        loaded.forEach(o -> o.getOrderItems().size());
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public Order flushOneChange() {
+        Order order = loaded.get(next++ % loaded.size());
+        order.setStatus(order.getStatus() == OrderStatus.ORDER ? OrderStatus.CANCEL : OrderStatus.ORDER);
+        em.flush();
+        return order;
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.search.MemberNameIndex;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 검색(회원명 부분일치) : like '%이름%' vs 회원 이름 인덱스(Lucene)
+ *
+ * ./gradlew jmh -PjmhIncludes=MemberSearchBenchmark
+ * 회원 100만명, 회원 이름은 member1 ~ member1000000
+ * - member123456 : 회원 1명
+ * - member12345  : 회원 11명 (member12345, member123450~123459)
+ * - ember99      : 회원 1111명, 인덱스 한도(1000)를 넘어서 like로 넘어가는 경우
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MemberSearchBenchmark {
+
+    @Param({"like", "index"})
+    String mode;
+    @Param({"member123456", "member12345", "ember99"})
+    String keyword;
+    @Param({"1000000"})
+    int members;
+    @Param({"100000"})
+    int orders;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("membersearch",
+                "--jpashop.member-search.enabled=" + mode.equals("index"));
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), members, 10, orders, 1);
+        // JDBC로 넣은 회원은 이벤트가 없어서 인덱스를 다시 만든다.
+        context.getBeanProvider(MemberNameIndex.class).ifAvailable(MemberNameIndex::rebuild);
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Order> findOrders_byMemberName() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(keyword);
+        return orderService.findOrders(orderSearch);
+    }
+}
@@ -0,0 +1,79 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDtoTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * v6 flat row 조립 비용만 (DB 없이 JDBC row 모양의 Object[]로)
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderFlatMappingBenchmark
+ * 할당량은 gc 프로파일러의 gc.alloc.rate.norm (B/op)을 본다.
+ * - groupingBy : 예전 v6 (row마다 OrderFlatDto, 키용 OrderQueryDto, 맵 엔트리 + 그룹마다 OrderQueryDto 한번 더)
+ * - transformer : OrderQueryDtoTransformer (주문마다 OrderQueryDto 1개, row마다 OrderItemQueryDto 1개)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+public class OrderFlatMappingBenchmark {
+
+    @Param({"100", "1000"})
+    int orders;
+    @Param({"3"})
+    int itemsPerOrder;
+
+    private List<Object[]> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rows = new ArrayList<>(orders * itemsPerOrder);
+        Address address = new Address("서울", "강가", "123-123");
+        LocalDateTime orderDate = LocalDateTime.now();
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            for (int i = 0; i < itemsPerOrder; i++) {
+                rows.add(new Object[]{orderId, "회원" + orderId, orderDate, OrderStatus.ORDER, address, "상품" + i, 10000, 1});
+            }
+        }
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> groupingBy() {
+        List<OrderFlatDto> flats = new ArrayList<>(rows.size());
+        for (Object[] row : rows) { // select new OrderFlatDto(...)
+            flats.add(new OrderFlatDto((Long) row[0], (String) row[1], (LocalDateTime) row[2], (OrderStatus) row[3],
+                    (Address) row[4], (String) row[5], (Integer) row[6], (Integer) row[7]));
+        }
+        //메서드 이름(groupingBy)이 같아서 static import가 가려진다
+        return flats.stream()
+                .collect(Collectors.groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
+                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
+                )).entrySet().stream()
+                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+                .collect(toList());
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> transformer() {
+        OrderQueryDtoTransformer transformer = new OrderQueryDtoTransformer();
+        List<OrderQueryDto> transformed = new ArrayList<>(rows.size()); // 하이버네이트가 row 결과를 모으는 리스트
+        for (Object[] row : rows) {
+            transformed.add(transformer.transformTuple(row, null));
+        }
+        return transformer.transformList(transformed);
+    }
+}
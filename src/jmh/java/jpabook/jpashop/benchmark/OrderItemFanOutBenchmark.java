@@ -0,0 +1,55 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * v5 findAllByDto_optimization 컬렉션 로딩 : in 목록 하나 vs 청크 병렬
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderItemFanOutBenchmark
+ * inChunkSize=1000000 이면 예전처럼 in 쿼리 한방(파라미터 한도에 걸리면 그 조합은 실패로 나온다)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class OrderItemFanOutBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int orders;
+    @Param({"1000", "1000000"})
+    int inChunkSize;
+    @Param({"1", "4"})
+    int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private OrderQueryRepository orderQueryRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("fanout",
+                "--jpashop.order-query.in-chunk-size=" + inChunkSize,
+                "--jpashop.order-query.parallelism=" + parallelism,
+                "--spring.datasource.hikari.maximum-pool-size=" + (parallelism + 2));
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), 100, 50, orders, 3);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> findAllByDto_optimization() {
+        return orderQueryRepository.findAllByDto_optimization();
+    }
+}
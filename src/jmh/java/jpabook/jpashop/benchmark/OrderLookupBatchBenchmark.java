@@ -0,0 +1,91 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.BatchedOrderService;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 동시 주문 500개일 때 회원/상품 조회 : 요청마다 따로 vs 모아서 (BatchedOrderService)
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderLookupBatchBenchmark
+ * - perCall : orderWithStockReservation (요청마다 회원 em.find, 상품 em.find)
+ * - batched : BatchedOrderService (window 동안 들어온 id를 in 쿼리 한번으로)
+ * 지연시간은 SampleTime 분포(p0.99), DB 왕복은 iteration마다 주문 1건당 statement 수를 찍는다.
+ * 2차 캐시를 타면 perCall 쪽 상품 조회가 DB를 안가서 끈다. 재고는 안 떨어지게 넉넉히 둔다.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(500)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderLookupBatchBenchmark {
+
+    @Param({"500"})
+    int members;
+    @Param({"50"})
+    int items;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private BatchedOrderService batchedOrderService;
+    private Statistics statistics;
+    private final AtomicLong orders = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("lookupbatch",
+                "--jpashop.order-lookup-batch.enabled=true",
+                "--jpashop.stock-shard.rebalance-interval=0",
+                "--jpashop.cache.order-dto.maximum-size=0",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), members, items, 0, 0);
+        orderService = context.getBean(OrderService.class);
+        batchedOrderService = context.getBean(BatchedOrderService.class);
+        statistics = BenchmarkApplication.statistics(context);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatistics() {
+        statistics.clear();
+        orders.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatements() {
+        long count = Math.max(orders.get(), 1);
+        System.out.printf("%n[lookup] orders=%d, statements/order=%.2f, entity loads/order=%.2f%n",
+                orders.get(), (double) statistics.getPrepareStatementCount() / count,
+                (double) statistics.getEntityLoadCount() / count);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long perCall() {
+        orders.incrementAndGet();
+        return orderService.orderWithStockReservation(randomId(members), randomId(items), 1);
+    }
+
+    @Benchmark
+    public Long batched() {
+        orders.incrementAndGet();
+        return batchedOrderService.order(randomId(members), randomId(items), 1);
+    }
+
+    private static long randomId(int size) {
+        return BenchmarkData.ID_BASE + ThreadLocalRandom.current().nextInt(size) + 1;
+    }
+}
@@ -0,0 +1,117 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * OrderApiController v1~v6 조회 전략 비교 (DTO 변환까지 포함)
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderQueryBenchmark
+ * 처리량(ops/s), gc 프로파일러(할당률), 쿼리 수(statements, ops/s 단위라 점수로 나누면 1회당 쿼리 수)
+ *
+ * OSIV를 꺼놨기 때문에 컨트롤러에서 지연로딩하는 v1~v3.1은 읽기전용 트랜잭션 안에서 부른다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderQueryBenchmark {
+
+    @Param({"100", "1000"})
+    int orders;
+    @Param({"3"})
+    int itemsPerOrder;
+    @Param({"50"})
+    int members;
+    @Param({"20"})
+    int items;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private OrderApiController orderApi;
+    private OrderQueryRepository orderQueryRepository;
+    private Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("orderquery");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), members, items, orders, itemsPerOrder);
+
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        orderApi = context.getBean(OrderApiController.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        statistics = BenchmarkApplication.statistics(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 실행된 JDBC statement 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class QueryCount {
+        public long statements;
+    }
+
+    @Benchmark
+    public Object v1_findAllByCriteria_entity(QueryCount count) {
+        return measure(count, () -> orderApi.ordersV1(0, orders));
+    }
+
+    @Benchmark
+    public Object v2_findAllByCriteria_dto(QueryCount count) {
+        return measure(count, () -> orderApi.ordersV2(0, orders, false).getData());
+    }
+
+    @Benchmark
+    public Object v3_findAllWithItem(QueryCount count) {
+        return measure(count, () -> orderApi.ordersV3(0, null, orders, false).getData());
+    }
+
+    @Benchmark
+    public Object v3_1_findAllWithMemberDelivery(QueryCount count) {
+        return measure(count, () -> orderApi.ordersV3_page(0, orders, false).getData());
+    }
+
+    @Benchmark
+    public Object v4_findOrderQueryDtos(QueryCount count) {
+        return measure(count, () -> orderApi.ordersV4(0, orders, false).getData());
+    }
+
+    /**
+     * 컨트롤러 v5는 DTO 캐시를 타서 리포지토리를 직접 부른다.
+     */
+    @Benchmark
+    public Object v5_findAllByDto_optimization(QueryCount count) {
+        return measure(count, () -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    @Benchmark
+    public Object v6_findAllByDto_flat(QueryCount count) {
+        return measure(count, () -> orderApi.ordersV6(null, orders, false).getData());
+    }
+
+    private List<?> measure(QueryCount count, Supplier<List<?>> query) {
+        long before = statistics.getPrepareStatementCount();
+        List<?> result = readOnlyTx.execute(status -> query.get());
+        count.statements += statistics.getPrepareStatementCount() - before;
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.query.OrderReadService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 한 페이지를 읽어서 DTO용 값까지 꺼내는 비용 : 영속성 컨텍스트 vs StatelessSession
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderReadPathBenchmark
+ * - managed : 읽기전용 트랜잭션 + 영속성 컨텍스트 (ToOne 패치조인, orderItems/item은 @BatchSize 지연로딩)
+ * - stateless : OrderReadService (주문 id 페이지 -> 그래프 패치조인, 영속성 컨텍스트/스냅샷 없음)
+ * 요청 1번당 힙 할당은 gc 프로파일러 gc.alloc.rate.norm(B/op), 지연시간은 ms/op
+ * 페이지 크기는 api의 MAX_LIMIT(1000)을 넘겨서 주문 10,000건 한 페이지까지 본다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderReadPathBenchmark {
+
+    @Param({"1000", "10000"})
+    int orders;
+    @Param({"3"})
+    int itemsPerOrder;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private OrderRepository orderRepository;
+    private OrderReadService orderReadService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 2차 캐시를 타면 managed 쪽만 DB를 덜 읽어서 끈다
+        context = BenchmarkApplication.start("readpath",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), 50, 20, orders, itemsPerOrder);
+
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderReadService = context.getBean(OrderReadService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long managed() {
+        return readOnlyTx.execute(status -> mapping(orderRepository.findAllWithMemberDelivery(0, orders)));
+    }
+
+    @Benchmark
+    public long stateless() {
+        return mapping(orderReadService.findAllWithItem(0, orders).content());
+    }
+
+    /**
+     * OrderDto가 읽는 값을 똑같이 건드린다.
+     */
+    private static long mapping(List<Order> page) {
+        long sum = 0;
+        for (Order order : page) {
+            sum += order.getMember().getName().length();
+            sum += order.getDelivery().getAddress().getCity().length();
+            for (OrderItem orderItem : order.getOrderItems()) {
+                sum += orderItem.getItem().getName().length() + orderItem.getOrderPrice() + orderItem.getCount();
+            }
+        }
+        return sum;
+    }
+}
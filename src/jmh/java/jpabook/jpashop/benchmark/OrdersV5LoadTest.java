@@ -0,0 +1,126 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * /api/v5/orders 부하 테스트 (동시 접속 CONNECTIONS개가 DURATION 동안 계속 요청)
+ *
+ * ./gradlew loadTest                   : 플랫폼 스레드(톰캣 스레드풀)
+ * ./gradlew loadTest -PvirtualThreads  : JDK 21 + virtual thread + DbConcurrencyGate
+ *
+ * DTO 캐시를 타면 DB를 안가서 캐시는 끄고, offset을 돌려가며 요청한다.
+ */
+public class OrdersV5LoadTest {
+
+    private static final int CONNECTIONS = Integer.getInteger("loadTest.connections", 2000);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadTest.seconds", 30));
+    private static final int ORDERS = 10_000;
+    private static final int PAGE = 50;
+
+    public static void main(String[] args) throws Exception {
+        List<String> appArgs = new ArrayList<>(Arrays.asList(args));
+        appArgs.addAll(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--jpashop.cache.order-dto.maximum-size=0",
+                "--jpashop.query-count.headers=false",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--server.tomcat.max-connections=" + (CONNECTIONS * 2),
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=warn"));
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .logStartupInfo(false)
+                .run(appArgs.toArray(String[]::new))) {
+            BenchmarkData.seed(context.getBean(JdbcTemplate.class), 100, 50, ORDERS, 3);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            boolean virtual = context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+            run("http://localhost:" + port, virtual ? "virtual" : "platform");
+        }
+    }
+
+    private static void run(String baseUrl, String mode) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long[][] latencies = new long[CONNECTIONS][];
+        AtomicLong errors = new AtomicLong();
+        ExecutorService clients = Executors.newFixedThreadPool(CONNECTIONS);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + DURATION.toNanos();
+
+        for (int c = 0; c < CONNECTIONS; c++) {
+            int connection = c;
+            clients.submit(() -> {
+                long[] samples = new long[1024];
+                int n = 0;
+                try {
+                    start.await();
+                    for (int i = 0; System.nanoTime() < deadline; i++) {
+                        int offset = ((connection + i) * PAGE) % ORDERS;
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create(baseUrl + "/api/v5/orders?offset=" + offset + "&limit=" + PAGE))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long begin = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        long elapsed = System.nanoTime() - begin;
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (n == samples.length) {
+                            samples = Arrays.copyOf(samples, n * 2);
+                        }
+                        samples[n++] = elapsed;
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                latencies[connection] = Arrays.copyOf(samples, n);
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        clients.shutdown();
+        clients.awaitTermination(DURATION.toSeconds() + 120, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        long[] all = Arrays.stream(latencies)
+                .filter(l -> l != null)
+                .flatMapToLong(Arrays::stream)
+                .sorted()
+                .toArray();
+        System.out.printf("[%s] connections=%d requests=%d errors=%d throughput=%.0f req/s p50=%.1fms p99=%.1fms max=%.1fms%n",
+                mode, CONNECTIONS, all.length, errors.get(), all.length / seconds,
+                percentileMillis(all, 0.50), percentileMillis(all, 0.99), percentileMillis(all, 1.0));
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
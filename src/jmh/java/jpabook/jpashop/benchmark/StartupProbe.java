@@ -0,0 +1,97 @@
+package jpabook.jpashop.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 첫 요청까지 걸린 시간 (time-to-first-request)
+ *
+ * ./gradlew startupProbe
+ * 프로세스를 새로 띄우고 /api/v2/members 가 처음 200을 줄 때까지 잰다.(JVM 기동 + 컨텍스트 + 톰캣 + 첫 요청 처리)
+ * - jar : 예전처럼 fat jar, 기본 프로필
+ * - jar-prod : fat jar, prod 프로필
+ * - aot-cds-prod : build/cds (app.jar + lib/), AOT + CDS 아카이브, prod 프로필
+ * DB는 다 메모리 H2로 같게 맞추고(스키마는 create), 모드마다 RUNS번 띄워서 중앙값을 본다.
+ */
+public class StartupProbe {
+
+    private static final int RUNS = Integer.getInteger("startupProbe.runs", 5);
+    private static final int PORT = Integer.getInteger("startupProbe.port", 18080);
+    private static final Duration TIMEOUT = Duration.ofSeconds(120);
+
+    public static void main(String[] args) throws Exception {
+        String bootJar = args[0];
+        Path cdsDir = Path.of(args[1]);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        probe("jar", null, List.of(java, "-jar", bootJar));
+        probe("jar-prod", null, List.of(java, "-jar", bootJar, "--spring.profiles.active=prod"));
+        probe("aot-cds-prod", cdsDir.toFile(), List.of(java, "-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true",
+                "-jar", "app.jar", "--spring.profiles.active=prod"));
+    }
+
+    private static void probe(String mode, File workingDir, List<String> command) throws Exception {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            millis[i] = timeToFirstRequest(workingDir, command);
+        }
+        Arrays.sort(millis);
+        System.out.printf("[%s] runs=%d median=%dms min=%dms max=%dms%n",
+                mode, RUNS, millis[RUNS / 2], millis[0], millis[RUNS - 1]);
+    }
+
+    private static long timeToFirstRequest(File workingDir, List<String> command) throws Exception {
+        List<String> full = new ArrayList<>(command);
+        full.addAll(List.of(
+                "--server.port=" + PORT,
+                "--spring.datasource.url=jdbc:h2:mem:probe;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--logging.level.root=warn"));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/api/v2/members?limit=1"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long begin = System.nanoTime();
+        Process process = new ProcessBuilder(full)
+                .directory(workingDir)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            while (System.nanoTime() - begin < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("기동 실패 exitCode=" + process.exitValue() + " " + full);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                    }
+                } catch (IOException e) {
+                    // 아직 톰캣이 안 떴다.
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("첫 요청 시간 초과 " + full);
+        } finally {
+            stop(process);
+        }
+    }
+
+    private static void stop(Process process) throws IOException, InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
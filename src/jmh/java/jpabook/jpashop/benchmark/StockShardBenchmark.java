@@ -0,0 +1,64 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.ItemStockService;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기상품 하나에 주문이 몰릴 때 처리량 : 재고 샤드 수별
+ *
+ * ./gradlew jmh -PjmhIncludes=StockShardBenchmark
+ * - shards=0 : 샤딩 안함 (item 행 조건부 UPDATE, 모든 주문이 item 행 락 하나에 줄 선다)
+ * - shards=1/4/16 : 재고 샤드 n개에서 랜덤 차감
+ * 재고는 안 떨어지게 넉넉히 둔다.(품절 경로는 안 잰다) 리밸런스는 끈다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StockShardBenchmark {
+
+    @Param({"0", "1", "4", "16"})
+    int shards;
+    @Param({"100"})
+    int members;
+
+    private static final long HOT_ITEM_ID = BenchmarkData.ID_BASE + 1;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("stockshard",
+                "--jpashop.stock-shard.rebalance-interval=0",
+                "--jpashop.cache.order-dto.maximum-size=0");
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), members, 1, 0, 0);
+        if (shards > 0) {
+            context.getBean(ItemStockService.class).shard(HOT_ITEM_ID, shards);
+        }
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long hotItem_orderWithStockReservation() {
+        return orderService.orderWithStockReservation(randomMemberId(), HOT_ITEM_ID, 1);
+    }
+
+    private long randomMemberId() {
+        return BenchmarkData.ID_BASE + ThreadLocalRandom.current().nextInt(members) + 1;
+    }
+}
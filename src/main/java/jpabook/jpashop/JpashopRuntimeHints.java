@@ -0,0 +1,50 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.*;
+import jpabook.jpashop.repository.ItemSnapshot;
+import jpabook.jpashop.repository.MemberSnapshot;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.search.MemberNameEntry;
+import jpabook.jpashop.service.query.CategoryNode;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * AOT(processAot) 런타임 힌트
+ * 엔티티는 하이버네이트가 필드/생성자를 리플렉션으로 건드리고,
+ * JPQL select new 로 만드는 DTO는 생성자를 리플렉션으로 찾는다. 둘 다 AOT가 코드만 보고는 모른다.
+ * 엔티티나 select new DTO를 새로 만들면 여기에도 추가할 것.
+ */
+public class JpashopRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> ENTITIES = List.of(
+            Member.class, Order.class, OrderItem.class, Delivery.class, Category.class, OrderSummary.class,
+            Item.class, Book.class, Album.class, Movie.class, ItemStockShard.class,
+            Address.class, OrderStatus.class, DeliveryStatus.class);
+
+    private static final List<Class<?>> CONSTRUCTOR_EXPRESSION_DTOS = List.of(
+            OrderQueryDto.class, OrderItemQueryDto.class, OrderFlatDto.class, OrderSimpleQueryDto.class,
+            MemberNameEntry.class, OrderSummary.class, MemberSnapshot.class, ItemSnapshot.class, OrderCursor.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        ENTITIES.forEach(type -> hints.reflection().registerType(type,
+                MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_DECLARED_METHODS));
+        CONSTRUCTOR_EXPRESSION_DTOS.forEach(type -> hints.reflection().registerType(type,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_PUBLIC_METHODS)); // 게터는 잭슨 직렬화
+        // 카테고리 트리는 CTE 결과(Object[])로 직접 조립하고, 응답으로 직렬화만 한다.
+        hints.reflection().registerType(CategoryNode.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.resources().registerPattern("ehcache.xml");
+    }
+}
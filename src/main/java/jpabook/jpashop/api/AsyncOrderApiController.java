@@ -0,0 +1,72 @@
+package jpabook.jpashop.api;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jpabook.jpashop.service.async.AsyncOrderQueue;
+import jpabook.jpashop.service.async.PendingOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 비동기 주문 api (jpashop.async-order.enabled=true 일 때만)
+ * 접수하면 202 + pendingId, 큐가 꽉 차면 429
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.async-order.enabled", havingValue = "true")
+public class AsyncOrderApiController {
+
+    private final AsyncOrderQueue asyncOrderQueue;
+
+    @PostMapping("/api/v1/orders/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CreateAsyncOrderResponse orderAsync(@RequestBody @Valid CreateAsyncOrderRequest request){
+        String pendingId = asyncOrderQueue.submit(request.getMemberId(), request.getItemId(), request.getCount());
+        return new CreateAsyncOrderResponse(pendingId);
+    }
+
+    @GetMapping("/api/v1/orders/pending/{pendingId}")
+    public ResponseEntity<PendingOrder> pendingOrder(@PathVariable("pendingId") String pendingId){
+        PendingOrder status = asyncOrderQueue.status(pendingId);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/api/v1/orders/pending")
+    public QueueStatusResponse queueStatus(){
+        return new QueueStatusResponse(asyncOrderQueue.size(), asyncOrderQueue.capacity());
+    }
+
+    @Data
+    static class CreateAsyncOrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateAsyncOrderResponse {
+        private String pendingId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class QueueStatusResponse {
+        private int size;
+        private int capacity;
+    }
+}
@@ -0,0 +1,146 @@
+package jpabook.jpashop.api;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.repository.OrderSearchQueries;
+import jpabook.jpashop.service.query.OrderDtoCache;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 캐시 적중률 확인용 api
+ */
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsApiController {
+
+    private final OrderDtoCache orderDtoCache;
+    private final EntityManagerFactory emf;
+    private final OrderSearchQueries orderSearchQueries;
+
+    @GetMapping("/api/cache/order-dto/stats")
+    public DtoCacheStatsResponse orderDtoCacheStats(){
+        CacheStats stats = orderDtoCache.stats();
+        return new DtoCacheStatsResponse(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.loadSuccessCount(),
+                stats.loadFailureCount(),
+                stats.totalLoadTime() / 1_000_000, // nano -> ms
+                stats.averageLoadPenalty() / 1_000_000,
+                stats.evictionCount(),
+                orderDtoCache.estimatedSize());
+    }
+
+    /**
+     * 하이버네이트 2차 캐시 리전별 적중률 (hibernate.generate_statistics: true 여야 집계된다, dev 프로필)
+     */
+    @GetMapping("/api/cache/entity/stats")
+    public EntityCacheStatsResponse entityCacheStats(){
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        List<RegionStats> regions = Arrays.stream(stats.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(name -> toRegionStats(name, stats.getCacheRegionStatistics(name)))
+                .filter(Objects::nonNull) // 통계 없는 리전(update-timestamps 등)
+                .toList();
+        return new EntityCacheStatsResponse(
+                stats.isStatisticsEnabled(),
+                hitRatio(stats.getSecondLevelCacheHitCount(), stats.getSecondLevelCacheMissCount()),
+                hitRatio(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount()),
+                regions);
+    }
+
+    /**
+     * 쿼리 플랜 재사용 현황
+     * - hibernate : HQL -> SQM 해석 결과 캐시 (hibernate.generate_statistics: true 여야 집계)
+     * - orderSearch : 주문 검색 모양별 named query 등록소
+     */
+    @GetMapping("/api/cache/query-plan/stats")
+    public QueryPlanStatsResponse queryPlanStats(){
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        long orderSearchHits = (long) orderSearchQueries.hitCount();
+        long orderSearchMisses = (long) orderSearchQueries.missCount();
+        return new QueryPlanStatsResponse(
+                stats.getQueryPlanCacheHitCount(),
+                stats.getQueryPlanCacheMissCount(),
+                hitRatio(stats.getQueryPlanCacheHitCount(), stats.getQueryPlanCacheMissCount()),
+                orderSearchHits,
+                orderSearchMisses,
+                hitRatio(orderSearchHits, orderSearchMisses),
+                orderSearchQueries.registered().values().stream().sorted().toList());
+    }
+
+    private static RegionStats toRegionStats(String name, CacheRegionStatistics region){
+        if (region == null) {
+            return null;
+        }
+        return new RegionStats(name,
+                region.getHitCount(),
+                region.getMissCount(),
+                hitRatio(region.getHitCount(), region.getMissCount()),
+                region.getPutCount(),
+                region.getElementCountInMemory());
+    }
+
+    private static double hitRatio(long hit, long miss){
+        long total = hit + miss;
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class EntityCacheStatsResponse {
+        private boolean statisticsEnabled;
+        private double secondLevelHitRatio;
+        private double queryCacheHitRatio;
+        private List<RegionStats> regions;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RegionStats {
+        private String region;
+        private long hitCount;
+        private long missCount;
+        private double hitRatio;
+        private long putCount;
+        private long size; // 통계를 못주는 provider면 음수
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class QueryPlanStatsResponse {
+        private long hibernateHitCount;
+        private long hibernateMissCount;
+        private double hibernateHitRatio;
+        private long orderSearchHitCount;
+        private long orderSearchMissCount;
+        private double orderSearchHitRatio;
+        private List<String> orderSearchQueries;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class DtoCacheStatsResponse {
+        private long hitCount;
+        private long missCount;
+        private double hitRate;
+        private long loadCount;
+        private long loadFailureCount;
+        private long totalLoadTimeMillis;
+        private double averageLoadTimeMillis;
+        private long evictionCount;
+        private long size;
+    }
+}
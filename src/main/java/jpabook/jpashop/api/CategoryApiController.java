@@ -0,0 +1,60 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.CategoryService;
+import jpabook.jpashop.service.query.CategoryNode;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+
+    private final CategoryService categoryService;
+
+    /**
+     * 카테고리 서브트리 (캐시된 불변 트리를 그대로)
+     */
+    @GetMapping("/api/v1/categories/{categoryId}/tree")
+    public ResponseEntity<CategoryNode> tree(@PathVariable("categoryId") Long categoryId){
+        return ResponseEntity.of(categoryService.findTree(categoryId));
+    }
+
+    /**
+     * 하위 카테고리 상품까지
+     */
+    @GetMapping("/api/v1/categories/{categoryId}/items")
+    public PageResult<CategoryItemDto> items(
+            @PathVariable("categoryId") Long categoryId,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        List<CategoryItemDto> items = categoryService.findItemsIncludingDescendants(categoryId, offset, limit).stream()
+                .map(CategoryItemDto::new)
+                .collect(toList());
+        return PageResult.ofOffset(items, offset, limit, null);
+    }
+
+    @Data
+    static class CategoryItemDto {
+        private Long itemId;
+        private String name;
+        private int price;
+
+        CategoryItemDto(Item item) {
+            this.itemId = item.getId();
+            this.name = item.getName();
+            this.price = item.getPrice();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.InvalidSelectionException;
+import org.springframework.util.StringUtils;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * fields 파라미터 (fields=orderDate,orderStatus)
+ * 응답 DTO 자기 필드 중에 내려줄 것만 고른다. 비어있으면 전부, id는 항상 내려준다.
+ * 연관관계(member, orderItems ...)는 fields가 아니라 expand로 고른다.(FetchPlan)
+ */
+final class Fields {
+
+    private Fields() {
+    }
+
+    static Set<String> parse(String fields, Set<String> allowed) {
+        if (!StringUtils.hasText(fields)) {
+            return allowed;
+        }
+        Set<String> selected = new TreeSet<>();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(field)) {
+                throw new InvalidSelectionException("fields는 " + new TreeSet<>(allowed) + " 중에서 : " + field);
+            }
+            selected.add(field);
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop.api;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.ItemStockService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 인기상품 재고 샤딩 관리 api
+ * 한정판매 전에 POST로 샤딩을 켜고, 끝나면 DELETE로 끈다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ItemStockApiController {
+
+    private final ItemService itemService;
+    private final ItemStockService itemStockService;
+
+    @GetMapping("/api/v1/items/{itemId}/stock")
+    public StockResponse stock(@PathVariable("itemId") Long itemId){
+        return stockResponse(itemId);
+    }
+
+    @PostMapping("/api/v1/items/{itemId}/stock-shards")
+    public StockResponse shard(@PathVariable("itemId") Long itemId, @RequestBody @Valid ShardRequest request){
+        itemStockService.shard(itemId, request.getShardCount());
+        return stockResponse(itemId);
+    }
+
+    @DeleteMapping("/api/v1/items/{itemId}/stock-shards")
+    public StockResponse unshard(@PathVariable("itemId") Long itemId){
+        itemStockService.unshard(itemId);
+        return stockResponse(itemId);
+    }
+
+    @PostMapping("/api/v1/items/{itemId}/stock-shards/rebalance")
+    public StockResponse rebalance(@PathVariable("itemId") Long itemId){
+        itemStockService.rebalance(itemId);
+        return stockResponse(itemId);
+    }
+
+    private StockResponse stockResponse(Long itemId){
+        Item item = itemService.findOne(itemId);
+        List<Integer> shards = itemStockService.findShards(itemId).stream()
+                .map(ItemStockShard::getQuantity)
+                .collect(toList());
+        return new StockResponse(itemId, item.getStockShardCount(), itemStockService.getStock(item), shards);
+    }
+
+    @Data
+    static class ShardRequest {
+        @Min(1)
+        @Max(ItemStockService.MAX_SHARDS)
+        private int shardCount;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class StockResponse {
+        private Long itemId;
+        private int shardCount; // 0이면 샤딩 안함
+        private int stock; // 전체 재고 (샤드 합계)
+        private List<Integer> shards; // 샤드별 재고
+    }
+}
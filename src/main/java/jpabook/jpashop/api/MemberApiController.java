@@ -1,16 +1,25 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
+import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.FetchPlan;
+import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.query.TotalCountCache;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -18,29 +27,36 @@ import java.util.stream.Collectors;
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final TotalCountCache totalCountCache;
 
+    private static final Set<String> MEMBER_FIELDS = Set.of("name", "address");
+
+    /**
+     * 배열을 바로 반환해서 PageResult처럼 nextCursor를 못 싣는다.
+     * 다음 페이지는 받은 마지막 회원 id를 after로 넘긴다.(limit개보다 적게 오면 끝)
+     */
     @GetMapping("/api/v1/members") //회원정보 검색 api를 했는데, 주문정보까지 다 나와버리는 참사
-    public List<Member> membersV1(){
-        return memberService.findMembers();
+    public List<Member> membersV1(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit){
+        return memberService.findMembers(after, PageResult.limit(limit));
     }
     @GetMapping("/api/v2/members")
-    public Result memberV2(){
-        List<Member> findMembers = memberService.findMembers();
+    public PageResult<MemberDto> memberV2(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        int size = PageResult.limit(limit);
+        List<Member> findMembers = memberService.findMembers(after, size);
         List<MemberDto> collect = findMembers.stream()
                 .map(m -> new MemberDto(m.getName()))
                 .collect(Collectors.toList());
 
-        return new Result(collect);  //data필드의 값을 Dto로 넣어준다.
-                                    // 이렇게하면 나중에 api 반환값 요구사항 새로 추가됐을때
-                                    //Result의 필드만 추가하면 구현가능!(ex. count)
-        /*return new Result(collect.size(),collect);*/
-    }
-
-    @Data
-    @AllArgsConstructor // 껍데기클래스 생성
-    static class Result<T> {
-        /*private int count;*/
-        private T data;
+        //data필드의 값을 Dto로 넣어준다.
+        // 이렇게하면 나중에 api 반환값 요구사항 새로 추가됐을때 PageResult의 필드만 추가하면 구현가능!(ex. totalCount)
+        String nextCursor = findMembers.size() < size ? null : String.valueOf(findMembers.get(findMembers.size() - 1).getId());
+        return new PageResult<>(collect, nextCursor,
+                totalCountCache.get(count, TotalCountCache.MEMBERS, memberService::countMembers));
     }
     @Data
     @AllArgsConstructor //api스펙이 Dto랑 1:1로 매핑됨. 필요한거만 노출가능.
@@ -48,6 +64,63 @@ public class MemberApiController {
         private String name;
     }
 
+    /**
+     * 필요한 것만 골라서 조회
+     * http://localhost:8080/api/v3/members?expand=orders&fields=name
+     * - expand : orders (회원 id 페이지 -> 회원 + 주문 쿼리 2번), 없으면 member 테이블만 1번
+     * - fields : name, address, memberId는 항상
+     */
+    @GetMapping("/api/v3/members")
+    public PageResult<MemberView> memberV3(
+            @RequestParam(value = "expand", required = false) String expand,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        FetchPlan plan = FetchPlan.parse(expand, MemberRepository.EXPANDABLE);
+        Set<String> selected = Fields.parse(fields, MEMBER_FIELDS);
+        int size = PageResult.limit(limit);
+        List<Member> findMembers = memberService.findMembers(plan, after, size);
+        List<MemberView> collect = findMembers.stream()
+                .map(m -> new MemberView(m, plan, selected))
+                .collect(Collectors.toList());
+        String nextCursor = findMembers.size() < size ? null : String.valueOf(findMembers.get(findMembers.size() - 1).getId());
+        return new PageResult<>(collect, nextCursor,
+                totalCountCache.get(count, TotalCountCache.MEMBERS, memberService::countMembers));
+    }
+
+    @Getter
+    @JsonInclude(JsonInclude.Include.NON_NULL) //고르지 않은 필드는 json에서 빠진다.
+    static class MemberView {
+        private Long memberId;
+        private String name;
+        private Address address;
+        private List<MemberOrderView> orders;
+
+        MemberView(Member member, FetchPlan plan, Set<String> fields) {
+            memberId = member.getId();
+            if (fields.contains("name")) {
+                name = member.getName();
+            }
+            if (fields.contains("address")) {
+                address = member.getAddress();
+            }
+            if (plan.has("orders")) {
+                orders = member.getOrders().stream()
+                        .map(o -> new MemberOrderView(o.getId(), o.getOrderDate(), o.getStatus()))
+                        .collect(Collectors.toList());
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class MemberOrderView {
+        private Long orderId;
+        private LocalDateTime orderDate;
+        private OrderStatus orderStatus;
+    }
+
 
     @PostMapping("/api/v1/members") // 회원가입,엔티티로 받으면 엔티티 바뀔때 api스펙도 바껴서 오류가능성높음.
     public CreateMemberResponse saveMemberV1(@RequestBody @Valid Member member){
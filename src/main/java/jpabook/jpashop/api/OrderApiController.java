@@ -1,23 +1,45 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.FetchPlan;
+import jpabook.jpashop.repository.IdThenFetchPager;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.BulkOrderDto;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderSummaryService;
+import jpabook.jpashop.service.query.OrderDtoCache;
+import jpabook.jpashop.service.query.OrderExportService;
+import jpabook.jpashop.service.query.OrderReadService;
+import jpabook.jpashop.service.query.TotalCountCache;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.stream.Collectors.*;
 
@@ -32,14 +54,26 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderExportService orderExportService;
+    private final OrderReadService orderReadService;
+    private final OrderDtoCache orderDtoCache;
+    private final OrderService orderService;
+    private final OrderSummaryService orderSummaryService;
+    private final TotalCountCache totalCountCache;
+
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final int SUMMARY_REBUILD_BATCH_SIZE = 1000;
+    private static final Set<String> ORDER_FIELDS = Set.of("orderDate", "orderStatus");
 // 양방향은 @JsonIgnore 꼭 해주기
 
     /**
      * 엔티티 직접 노출
      */
     @GetMapping("/api/v1/orders")
-    public List<Order> ordersV1(){
-        List<Order> all = orderRepository.findAllByCriteria(new OrderSearch());
+    public List<Order> ordersV1(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit){
+        List<Order> all = orderRepository.findAllByCriteria(pageSearch(offset, limit));
         for (Order order : all) {
             // 객체 그래프 초기화 (Hibernate5JakartaModule 때문에 프록시출력하려면 초기화해야됨.)
             order.getMember().getName();
@@ -56,28 +90,49 @@ public class OrderApiController {
      * dto안에 엔티티 있어도 안됨. 아예 의존을 끊어야함. (address같은 값타입은 괜찮음)
      */
     @GetMapping("/api/v2/orders")
-    public List<OrderDto> ordersV2(){
-        List<Order> orders = orderRepository.findAllByCriteria(new OrderSearch());
-        List<OrderDto> collect = orders.stream()
+    public PageResult<OrderDto> ordersV2(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        // 바로 DTO로 바꿀거라 영속성 컨텍스트 없이 읽는다.(OrderReadService) 지연로딩이 안되니 그래프는 패치조인으로
+        IdThenFetchPager.Page<Order, Long> orders = orderReadService.findAllWithItem(offset, limit);
+        List<OrderDto> collect = orders.content().stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
-        return collect;
+        return PageResult.ofOffset(collect, orders.hasNext(limit), offset, limit, totalOrders(count));
     }
 
     /**
      * 하이버네이트6에서는 패치조인을 하면 자동으로 중복제거를 해준다.(distinct안써도됨)
      * 어마어마한 단점 : 컬렉션 패치 조인은 페이징이 불가능하다. 1:다 관계는 하지마시오.
-     * outofMemory터집니다
+     * 그냥 페이징 걸면 다 불러와서 메모리에서 자른다. outofMemory터집니다 (지금은 yml 설정으로 아예 예외)
      *
-     * 페이징 안쓰고 data 얼마 없을때는 이렇게 해도 상관은 없다. 빠르다.
+     * 그래서 주문 id 한 페이지를 먼저 뽑고, 그 id들만 패치조인한다. 쿼리 2번 (id 페이지, 패치조인)
+     * http://localhost:8080/api/v3/orders?offset=0&limit=100
+     * http://localhost:8080/api/v3/orders?after={nextCursor}&limit=100  주문 id 커서 (offset 무시)
      */
     @GetMapping("/api/v3/orders")
-    public List<OrderDto> ordersV3(){
-       List<Order> orders = orderRepository.findAllWithItem();
-        List<OrderDto> collect = orders.stream()
+    public PageResult<OrderDto> ordersV3(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        IdThenFetchPager.Page<Order, Long> orders = after == null
+                ? orderRepository.findAllWithItem(offset, limit)
+                : orderRepository.findAllWithItem(after, limit);
+        List<OrderDto> collect = orders.content().stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
-        return collect;
+        if (after == null) {
+            return PageResult.ofOffset(collect, orders.hasNext(limit), offset, limit, totalOrders(count));
+        }
+        //커서는 응답에 실린 주문이 아니라 id 페이지의 마지막 id (패치조인에서 빠진 주문도 건너뛴다)
+        String nextCursor = orders.hasNext(limit) ? String.valueOf(orders.lastKey()) : null;
+        return new PageResult<>(collect, nextCursor, totalOrders(count));
     }
 
     /**
@@ -89,18 +144,50 @@ public class OrderApiController {
      *  was,DB 순간부하 걱정되면 100~500으로 쓰기
      *
      *  90%이상의 성능최적화는 이 level에서 해결된다.
+     *
+     *  지금은 DTO로 바로 바꾸는 api라 StatelessSession으로 읽는다.(OrderReadService)
+     *  StatelessSession은 지연로딩/배치가 안돼서 주문 id 페이지 -> 그래프 패치조인 2번으로 명시해서 읽는다.
      */
     @GetMapping("/api/v3.1/orders")
-    public List<OrderDto> ordersV3_page(
+    public PageResult<OrderDto> ordersV3_page(
             @RequestParam(value = "offset",defaultValue = "0") int offset,
-            @RequestParam(value = "limit",defaultValue = "100") int limit)
+            @RequestParam(value = "limit",defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count)
     {
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset,limit);
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        IdThenFetchPager.Page<Order, Long> orders = orderReadService.findAllWithItem(offset, limit);
 
-        List<OrderDto> collect = orders.stream()
+        List<OrderDto> collect = orders.content().stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
-        return collect;
+        return PageResult.ofOffset(collect, orders.hasNext(limit), offset, limit, totalOrders(count));
+    }
+
+    /**
+     * v3.1 커서 페이징 모드 (after 파라미터가 있으면 이쪽으로 온다)
+     * http://localhost:8080/api/v3.1/orders?after=&limit=100  첫 페이지
+     * http://localhost:8080/api/v3.1/orders?after={nextCursor}&limit=100  다음 페이지
+     * offset처럼 앞 row를 버리지 않아서 깊은 페이지도 첫 페이지랑 비용이 같다.
+     * 쿼리는 페이지당 2번 (주문 id 페이지, 그래프 패치조인), 영속성 컨텍스트 없이 (OrderReadService)
+     */
+    @GetMapping(value = "/api/v3.1/orders", params = "after")
+    public PageResult<OrderDto> ordersV3_cursor(
+            @RequestParam("after") String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count)
+    {
+        int size = PageResult.limit(limit);
+        OrderCursor cursor = StringUtils.hasText(after) ? OrderCursor.decode(after) : null;
+        IdThenFetchPager.Page<Order, OrderCursor> orders = orderReadService.findAllWithItem(cursor, size);
+
+        List<OrderDto> collect = orders.content().stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+        //주문 id 페이지가 꽉 찼으면 다음 페이지가 있을 수 있으니 그 페이지의 마지막 위치를 커서로 내려준다.
+        //(패치조인에서 빠진 주문이 있어도 응답 건수가 아니라 id 페이지로 판단)
+        String nextCursor = orders.hasNext(size) ? orders.lastKey().encode() : null;
+        return new PageResult<>(collect, nextCursor, totalOrders(count));
     }
 
     /**
@@ -111,8 +198,13 @@ public class OrderApiController {
      * 예를들어 Order데이터가 1건이면 OrderItems도 1번만 조회한다.
      */
     @GetMapping("/api/v4/orders")
-    public List<OrderQueryDto> ordersV4(){
-        return orderQueryRepository.findOrderQueryDtos();
+    public PageResult<OrderQueryDto> ordersV4(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        return PageResult.ofOffset(orderQueryRepository.findOrderQueryDtos(offset, limit), offset, limit, totalOrders(count));
     }
 
     /**
@@ -123,8 +215,14 @@ public class OrderApiController {
      * 근데 이게 뭐 배치사이즈 적용하는거랑 다를바 없다.
      */
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5(){
-        return orderQueryRepository.findAllByDto_optimization();
+    public PageResult<OrderQueryDto> ordersV5(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        // 여기까지 해도 부족하면 캐시. 엔티티 말고 DTO를 캐시한다.
+        return PageResult.ofOffset(orderDtoCache.findAllByDto_optimization(offset, limit), offset, limit, totalOrders(count));
     }
 
     /**
@@ -134,17 +232,206 @@ public class OrderApiController {
      * 이 부분은 난이도가 좀 있으니 우선 이런게 있구나 정도 알아두시고, 향후 성능 최적화의 필요성이 느껴질 때 다시 참고하시면 됩니다.
      */
     @GetMapping("/api/v6/orders")
-    public List<OrderQueryDto> ordersV6(){
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-        //개발자가 지지고 볶아서 한줄로 나온걸 개발자가 직접 분해하고 조립하면 된다.
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+    public PageResult<OrderQueryDto> ordersV6(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        int size = PageResult.limit(limit);
+        // 페이징은 주문 id 커서로 (row가 주문상품 단위라 offset으로는 주문이 잘린다)
+        //한줄로 나온걸 분해하고 조립하는건 리포지토리에서 (groupingBy 대신 order_id 순으로 한번에, 주문 id 순서 그대로)
+        IdThenFetchPager.Page<OrderQueryDto, Long> orders = orderQueryRepository.findAllByDto_flat(after, size);
+        //커서는 응답에 실린 주문이 아니라 id 페이지의 마지막 id (주문상품 없는 주문도 건너뛴다)
+        String nextCursor = orders.hasNext(size) ? String.valueOf(orders.lastKey()) : null;
+        return new PageResult<>(orders.content(), nextCursor, totalOrders(count));
+    }
+
+
+    /**
+     * v6 전체 내보내기 (NDJSON)
+     * v1~v6는 전부 List를 메모리에 다 만든 다음 json으로 바꿔서 데이터 많으면 힙이 터진다.
+     * 여기서는 DB 커서로 읽으면서 주문 하나씩 응답 스트림에 바로 쓴다.
+     */
+    @GetMapping("/api/v6/orders/export")
+    public void ordersV6_export(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        orderExportService.exportOrders(response.getOutputStream());
+    }
+
+    /**
+     * 주문 요약 읽기 모델(order_summary) 커서 페이징
+     * 합계를 OrderItem 로딩 없이 미리 계산된 컬럼으로 읽는다. 페이지당 쿼리 1번, 조인 없음
+     */
+    @GetMapping("/api/v7/orders")
+    public PageResult<OrderSummaryDto> ordersV7(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count)
+    {
+        int size = PageResult.limit(limit);
+        OrderCursor cursor = StringUtils.hasText(after) ? OrderCursor.decode(after) : null;
+        List<OrderSummary> summaries = orderSummaryService.findPage(cursor, size);
+
+        List<OrderSummaryDto> collect = summaries.stream()
+                .map(s -> new OrderSummaryDto(s))
                 .collect(toList());
+        String nextCursor = summaries.size() < size ? null : OrderCursor.of(summaries.get(summaries.size() - 1)).encode();
+        return new PageResult<>(collect, nextCursor,
+                totalCountCache.get(count, TotalCountCache.ORDER_SUMMARIES, orderSummaryService::count));
+    }
+
+    /**
+     * 주문 요약 재생성 (원본 테이블에서 배치로 다시 계산)
+     */
+    @PostMapping("/api/v7/orders/rebuild")
+    public RebuildResponse rebuildOrderSummaries(){
+        return new RebuildResponse(orderSummaryService.rebuild(SUMMARY_REBUILD_BATCH_SIZE));
     }
 
+    /**
+     * 필요한 것만 골라서 조회
+     * http://localhost:8080/api/v8/orders?expand=member,delivery,orderItems.item&fields=orderDate
+     * - expand : 같이 읽을 연관관계 (member, delivery, orderItems, orderItems.item), EntityGraph로 요청한 것만 조인
+     * - fields : 주문 자기 필드 중 내려줄 것 (orderDate, orderStatus), orderId는 항상
+     * 주문 헤더만 필요하면 expand 없이 부르면 orders 테이블만 쿼리 1번, orderItems를 넣으면 2번 (주문 id 페이지, 그래프)
+     */
+    @GetMapping("/api/v8/orders")
+    public PageResult<OrderView> ordersV8(
+            @RequestParam(value = "expand", required = false) String expand,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        FetchPlan plan = FetchPlan.parse(expand, OrderRepository.EXPANDABLE);
+        Set<String> selected = Fields.parse(fields, ORDER_FIELDS);
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        List<OrderView> collect = orderReadService.findAll(plan, offset, limit).stream()
+                .map(o -> new OrderView(o, plan, selected))
+                .collect(toList());
+        return PageResult.ofOffset(collect, offset, limit, totalOrders(count));
+    }
+
+    private static OrderSearch pageSearch(int offset, int limit) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOffset(PageResult.offset(offset));
+        orderSearch.setLimit(PageResult.limit(limit));
+        return orderSearch;
+    }
+
+    private Long totalOrders(boolean count) {
+        return totalCountCache.get(count, TotalCountCache.ORDERS, orderRepository::count);
+    }
+
+    /**
+     * 대량 주문 (주문 수천건을 트랜잭션 하나로)
+     * 회원/상품은 in 쿼리로 모아서 읽고 insert는 jdbc batch로 보낸다.
+     */
+    @PostMapping("/api/v1/orders/bulk")
+    public BulkOrderResponse bulkOrderV1(@RequestBody @Valid BulkOrderRequest request){
+        List<Long> orderIds = orderService.bulkOrder(request.getOrders());
+        return new BulkOrderResponse(orderIds.size(), orderIds);
+    }
+
+    @Data
+    static class BulkOrderRequest {
+        @NotEmpty @Valid
+        private List<BulkOrderDto> orders;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BulkOrderResponse {
+        private int count;
+        private List<Long> orderIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RebuildResponse {
+        private long count;
+    }
+
+    /**
+     * v8 응답, 고르지 않은 필드/연관관계는 null이라 json에서 빠진다.
+     * 요청한 연관관계만 건드린다.(나머지는 로딩 안된 상태)
+     */
+    @Getter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class OrderView {
+        private Long orderId;
+        private LocalDateTime orderDate;
+        private OrderStatus orderStatus;
+        private MemberView member;
+        private DeliveryView delivery;
+        private List<OrderItemView> orderItems;
+
+        OrderView(Order order, FetchPlan plan, Set<String> fields) {
+            orderId = order.getId();
+            if (fields.contains("orderDate")) {
+                orderDate = order.getOrderDate();
+            }
+            if (fields.contains("orderStatus")) {
+                orderStatus = order.getStatus();
+            }
+            if (plan.has("member")) {
+                member = new MemberView(order.getMember().getId(), order.getMember().getName());
+            }
+            if (plan.has("delivery")) {
+                delivery = new DeliveryView(order.getDelivery().getAddress(), order.getDelivery().getStatus());
+            }
+            if (plan.has("orderItems")) {
+                boolean withItem = plan.has("orderItems.item");
+                orderItems = order.getOrderItems().stream()
+                        .map(oi -> new OrderItemView(withItem ? oi.getItem().getName() : null, oi.getOrderPrice(), oi.getCount()))
+                        .collect(toList());
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class MemberView {
+        private Long memberId;
+        private String name;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class DeliveryView {
+        private Address address;
+        private DeliveryStatus status;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class OrderItemView {
+        private String itemName;
+        private int orderPrice;
+        private int count;
+    }
+
+    @Getter
+    static class OrderSummaryDto {
+        private Long orderId;
+        private String name;
+        private LocalDateTime orderDate;
+        private OrderStatus orderStatus;
+        private DeliveryStatus deliveryStatus;
+        private int itemCount;
+        private int totalPrice;
+
+        public OrderSummaryDto(OrderSummary summary) {
+            orderId = summary.getOrderId();
+            name = summary.getMemberName();
+            orderDate = summary.getOrderDate();
+            orderStatus = summary.getStatus();
+            deliveryStatus = summary.getDeliveryStatus();
+            itemCount = summary.getItemCount();
+            totalPrice = summary.getTotalPrice();
+        }
+    }
 
     @Getter
     static class OrderDto {
@@ -7,9 +7,13 @@ import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.query.OrderDtoCache;
+import jpabook.jpashop.service.query.OrderReadService;
+import jpabook.jpashop.service.query.TotalCountCache;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
@@ -28,6 +32,9 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderReadService orderReadService;
+    private final OrderDtoCache orderDtoCache;
+    private final TotalCountCache totalCountCache;
 
     /**
      * 양방향 연관관계를 엔티티로 던지면 무한루프에 빠짐 오더의멤버의오더의멤버의...
@@ -38,8 +45,10 @@ public class OrderSimpleApiController {
      *     엔티티로 직접 노출하지 마시오..! Dto를 권장함.
      */
     @GetMapping("/api/v1/simple-orders")
-    public List<Order> ordersV1(){
-        List<Order> all = orderRepository.findAllByCriteria(new OrderSearch());
+    public List<Order> ordersV1(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit){
+        List<Order> all = orderRepository.findAllByCriteria(pageSearch(offset, limit));
         for (Order order : all) {
             order.getMember().getName(); //Lazy 강제 초기화
             order.getDelivery().getAddress(); //Lazy 강제 초기화
@@ -53,13 +62,17 @@ public class OrderSimpleApiController {
      * 이것도 좋은 방법은 아니다. 성능문제 있음.
      */
     @GetMapping("/api/v2/simple-orders")
-    public List<SimpleOrderDto> ordersV2(){
+    public PageResult<SimpleOrderDto> ordersV2(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
         // Order가 2개인데 쿼리는 5개가 나가버림~~~~!
-        List<Order> orders = orderRepository.findAllByCriteria(new OrderSearch());
+        OrderSearch orderSearch = pageSearch(offset, limit);
+        List<Order> orders = orderRepository.findAllByCriteria(orderSearch);
         List<SimpleOrderDto> result = orders.stream()
                 .map(o -> new SimpleOrderDto(o))
                 .collect(Collectors.toList());
-        return result;
+        return PageResult.ofOffset(result, orderSearch.getOffset(), orderSearch.getLimit(), totalOrders(count));
     }
 
     /**
@@ -67,13 +80,19 @@ public class OrderSimpleApiController {
      * 여기까지 오면 대부분의 성능 이슈가 해결된다.
      */
     @GetMapping("/api/v3/simple-orders")
-    public List<SimpleOrderDto> ordersV3(){
-        //패치조인 실행(한방쿼리로 다 가져옴)
-        List<Order> orders = orderRepository.findAllWithMemberDelivery();
+    public PageResult<SimpleOrderDto> ordersV3(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        //패치조인 실행(한방쿼리로 다 가져옴), ToOne만 조인해서 페이징도 DB에서 된다.
+        //DTO로 바로 바꿀거라 영속성 컨텍스트/스냅샷 없이 읽는다.(OrderReadService)
+        List<Order> orders = orderReadService.findAllWithMemberDelivery(offset, limit);
         List<SimpleOrderDto> result = orders.stream()
                 .map(o -> new SimpleOrderDto(o))
                 .collect(Collectors.toList());
-        return result;
+        return PageResult.ofOffset(result, offset, limit, totalOrders(count));
     }
 
     /**
@@ -81,8 +100,25 @@ public class OrderSimpleApiController {
      * v3해도 안되면 DTO를 바로 사용하는 것임.
      */
     @GetMapping("/api/v4/simple-orders")
-    public List<OrderSimpleQueryDto> ordersV4(){
-        return orderSimpleQueryRepository.findOrderDtos();
+    public PageResult<OrderSimpleQueryDto> ordersV4(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "count", defaultValue = "false") boolean count){
+        offset = PageResult.offset(offset);
+        limit = PageResult.limit(limit);
+        // DTO 캐시, 주문 생성/취소 커밋시 무효화
+        return PageResult.ofOffset(orderDtoCache.findOrderDtos(offset, limit), offset, limit, totalOrders(count));
+    }
+
+    private static OrderSearch pageSearch(int offset, int limit) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOffset(PageResult.offset(offset));
+        orderSearch.setLimit(PageResult.limit(limit));
+        return orderSearch;
+    }
+
+    private Long totalOrders(boolean count) {
+        return totalCountCache.get(count, TotalCountCache.ORDERS, orderRepository::count);
     }
 
     @Data
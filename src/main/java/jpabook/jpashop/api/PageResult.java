@@ -0,0 +1,64 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 목록 api 공통 응답
+ * - data : 이번 페이지
+ * - size : data 건수
+ * - nextCursor : 다음 페이지 위치, 마지막 페이지면 null
+ *   커서 페이징 api는 after 파라미터로, offset 페이징 api는 offset 파라미터로 그대로 돌려주면 된다.
+ * - totalCount : count=true로 요청했을 때만 (캐시된 근사값, TotalCountCache)
+ *
+ * 모든 목록 api는 limit을 MAX_LIMIT까지만 받는다.(전체 조회 없음)
+ * MAX_LIMIT는 주문 id 페이지 in 절 크기, Order.orderItems/Item의 @BatchSize(영속성 컨텍스트로 읽는 api)와 맞춰서
+ * 페이지당 쿼리 수가 고정되게 한다.
+ */
+@Getter
+public class PageResult<T> {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private final List<T> data;
+    private final int size;
+    private final String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long totalCount;
+
+    public PageResult(List<T> data, String nextCursor, Long totalCount) {
+        this.data = data;
+        this.size = data.size();
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * offset 페이징 : 꽉 찬 페이지면 다음 offset을 커서로
+     */
+    public static <T> PageResult<T> ofOffset(List<T> data, int offset, int limit, Long totalCount) {
+        return ofOffset(data, data.size() >= limit, offset, limit, totalCount);
+    }
+
+    /**
+     * offset 페이징 : data가 걸러져서 limit보다 적을 수 있을 때 (IdThenFetchPager.Page.hasNext)
+     */
+    public static <T> PageResult<T> ofOffset(List<T> data, boolean hasNext, int offset, int limit, Long totalCount) {
+        String nextCursor = hasNext ? String.valueOf(offset + limit) : null;
+        return new PageResult<>(data, nextCursor, totalCount);
+    }
+
+    /**
+     * 요청한 limit을 1 ~ MAX_LIMIT로 자른다.
+     */
+    public static int limit(int requested) {
+        return Math.min(Math.max(requested, 1), MAX_LIMIT);
+    }
+
+    public static int offset(int requested) {
+        return Math.max(requested, 0);
+    }
+}
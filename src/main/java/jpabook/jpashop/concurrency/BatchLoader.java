@@ -0,0 +1,114 @@
+package jpabook.jpashop.concurrency;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 요청 여러개의 단건 조회를 모아서 in 쿼리 한번으로 (DataLoader 방식)
+ *
+ * 처음 들어온 키부터 window 동안 들어온 키를 모았다가 batch(키 집합)를 한번 부르고 결과를 기다리던 요청들에 나눠준다.
+ * maxBatchSize개가 차면 window를 안 기다리고 바로 보낸다. 같은 키가 여러번 오면 한번만 조회한다.
+ * 결과에 없는 키는 null로 끝난다. batch가 예외를 던지면 그 배치를 기다리던 요청 전부가 그 예외로 끝난다.
+ * executor/scheduler가 배치를 안 받으면(종료 중, 큐 꽉 참) 그 배치를 기다리던 요청 전부가 RejectedExecutionException으로 끝난다.
+ * 돌려주는 future는 같은 키 요청끼리 같이 쓴다. 기다릴 때 시간 제한은 부르는 쪽에서 copy()나 allOf()에 걸 것.(orTimeout이 future를 끝내버린다)
+ *
+ * batch는 요청 스레드가 아니라 executor에서 돈다. 요청 쪽 트랜잭션(커넥션) 밖에서 부를 것.
+ * 커넥션을 쥔 요청 스레드가 전부 여기서 기다리면 batch가 쓸 커넥션이 안 남는다.
+ * 지표 : batch.loader.size (name 태그별, 배치 하나에 담긴 키 수)
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batch;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final DistributionSummary batchSizes;
+
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>(); // this로 동기화
+
+    public BatchLoader(String name, Function<Set<K>, Map<K, V>> batch, Duration window, int maxBatchSize,
+                       ScheduledExecutorService scheduler, Executor executor, MeterRegistry meterRegistry) {
+        this.batch = batch;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.batchSizes = DistributionSummary.builder("batch.loader.size").tag("name", name).register(meterRegistry);
+    }
+
+    public CompletableFuture<V> load(K key) {
+        Map<K, CompletableFuture<V>> full = null;
+        CompletableFuture<V> future;
+        synchronized (this) {
+            future = pending.get(key);
+            if (future != null) {
+                return future; // 같은 창에서 같은 키
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            boolean scheduled = true;
+            if (pending.size() == 1) {
+                Map<K, CompletableFuture<V>> opened = pending;
+                try {
+                    scheduler.schedule(() -> dispatch(opened), window.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    scheduled = false; // 타이머가 없으니 창을 안 기다리고 바로
+                }
+            }
+            if (!scheduled || pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new LinkedHashMap<>();
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return future;
+    }
+
+    /**
+     * window가 끝났을 때, 그 사이에 꽉 차서 이미 나간 배치면 아무것도 안한다.
+     */
+    private void dispatch(Map<K, CompletableFuture<V>> opened) {
+        synchronized (this) {
+            if (pending != opened) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        submit(opened);
+    }
+
+    /**
+     * executor가 안 받으면 아무도 future를 안 끝내주니 여기서 끝낸다. (dispatch는 scheduler 스레드라 던져봐야 아무도 못 받는다)
+     */
+    private void submit(Map<K, CompletableFuture<V>> waiters) {
+        try {
+            executor.execute(() -> run(waiters));
+        } catch (RejectedExecutionException e) {
+            waiters.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void run(Map<K, CompletableFuture<V>> waiters) {
+        batchSizes.record(waiters.size());
+        try {
+            Map<K, V> loaded = batch.apply(waiters.keySet());
+            waiters.forEach((key, future) -> future.complete(loaded.get(key)));
+        } catch (Throwable e) {
+            waiters.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.concurrency;
+
+import jpabook.jpashop.datasource.ConnectionPools;
+import jpabook.jpashop.exception.DbBusyException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DB 입장 제한 (virtual thread 모드에서만 켜짐)
+ *
+ * virtual thread면 요청 수천개가 동시에 리포지토리까지 내려와서 hikari 커넥션을 기다린다.
+ * 커넥션 대기/JDBC 드라이버 안의 synchronized에서 캐리어 스레드가 묶이지(pinning) 않도록
+ * 그 앞에서 세마포어로 동시에 DB를 쓰는 수를 커넥션 수만큼으로 막는다. (세마포어 대기는 pinning 안됨)
+ *
+ * 트랜잭션 시작(커넥션 획득)보다 먼저 막아야 해서 가장 바깥에서 돈다.
+ * 서비스 -> 리포지토리처럼 안쪽 호출은 이미 통과한 스레드라 다시 막지 않는다.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class DbConcurrencyGate {
+
+    private static final ThreadLocal<Boolean> ADMITTED = new ThreadLocal<>();
+
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    //hikari가 아니라 풀 크기를 모를 때 (hikari 기본값)
+    private static final int DEFAULT_PERMITS = 10;
+
+    /**
+     * @param permits 0이면 커넥션 풀 크기(hikari maximum-pool-size)만큼
+     */
+    public DbConcurrencyGate(DataSource dataSource,
+                             @Value("${jpashop.db-gate.permits:0}") int permits,
+                             @Value("${jpashop.db-gate.timeout:3s}") Duration timeout) {
+        int size = permits > 0 ? permits : ConnectionPools.maximumPoolSize(dataSource).orElse(DEFAULT_PERMITS);
+        this.permits = new Semaphore(size, true); // 먼저 온 요청부터
+        this.timeout = timeout;
+    }
+
+    @Around("@within(org.springframework.stereotype.Repository) || " +
+            "@within(org.springframework.transaction.annotation.Transactional) || " +
+            "@annotation(org.springframework.transaction.annotation.Transactional)")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (ADMITTED.get() != null) {
+            return joinPoint.proceed();
+        }
+        if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new DbBusyException("DB 동시 실행 한도 초과 : " + joinPoint.getSignature().toShortString());
+        }
+        ADMITTED.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ADMITTED.remove();
+            permits.release();
+        }
+    }
+
+    /**
+     * 이미 들어온 요청이 다른 스레드에서 커넥션을 하나 더 쓸 때 (OrderItemChunkLoader 워커)
+     * 기다리지 않는다. 자리가 없으면 false, 그 일은 요청 스레드가 자기 커넥션으로 한다.
+     * true면 다 쓰고 releaseExtra()
+     */
+    public boolean tryAcquireExtra() {
+        return permits.tryAcquire();
+    }
+
+    public void releaseExtra() {
+        permits.release();
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+}
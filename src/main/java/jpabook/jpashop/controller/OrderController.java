@@ -4,15 +4,18 @@ import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.BatchedOrderService;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.async.AsyncOrderQueue;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 
 @Controller
 @RequiredArgsConstructor
@@ -21,6 +24,8 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final Optional<AsyncOrderQueue> asyncOrderQueue; // jpashop.async-order.enabled=true 일 때만 있음
+    private final Optional<BatchedOrderService> batchedOrderService; // jpashop.order-lookup-batch.enabled=true 일 때만 있음
 
     @GetMapping("/order")
     public String createForm(Model model){
@@ -36,7 +41,15 @@ public class OrderController {
     public String order(@RequestParam("memberId") Long memberId,
                         @RequestParam("itemId") Long itemId,
                         @RequestParam("count") int count ){
-        orderService.order(memberId, itemId, count);
+        if (asyncOrderQueue.isPresent()) {
+            // 큐에 넣고 바로 리턴, 목록에는 워커가 처리한 뒤에 보인다.(큐가 꽉 차면 429)
+            asyncOrderQueue.get().submit(memberId, itemId, count);
+        } else if (batchedOrderService.isPresent()) {
+            // 동시에 들어온 주문들의 회원/상품 조회를 모아서 in 쿼리로
+            batchedOrderService.get().order(memberId, itemId, count);
+        } else {
+            orderService.order(memberId, itemId, count);
+        }
         return "redirect:/orders";
     }
 
@@ -0,0 +1,33 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.OptionalInt;
+
+/**
+ * 커넥션 풀 크기 (DbConcurrencyGate 허가 수, OrderItemChunkLoader 병렬도를 여기서 맞춘다)
+ *
+ * 빈으로 등록된 DataSource는 p6spy 데코레이터, replica 라우팅(LazyConnectionDataSourceProxy)으로 감싸져 있을 수 있어서
+ * unwrap으로 안쪽 hikari를 찾는다. 라우팅이면 트랜잭션 밖에서 고른 쪽(primary) 풀이다.
+ */
+public final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * hikari maximum-pool-size, hikari가 아니면 empty
+     */
+    public static OptionalInt maximumPoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return OptionalInt.of(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+            }
+        } catch (SQLException e) {
+            // 감싼 쪽이 unwrap을 지원 안하면 모르는 걸로
+        }
+        return OptionalInt.empty();
+    }
+}
@@ -0,0 +1,120 @@
+package jpabook.jpashop.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * primary 1개 + replica 여러개 커넥션 풀과 replica 지연(lag) 상태
+ *
+ * 주기적으로 replica마다 lagQuery(지연 초를 돌려주는 SQL)를 실행해서 maxLag보다 밀려있으면 stale로 본다.
+ * lagQuery가 없으면 커넥션이 살아있는지만 본다.
+ * 예) MySQL : select timestampdiff(second, max(ts), now()) from replication_heartbeat
+ */
+@Slf4j
+public class ReplicaDataSources implements AutoCloseable {
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final Map<String, Boolean> fresh = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaDataSources(DataSource primary, Map<String, DataSource> replicas, String lagQuery, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        replicas.keySet().forEach(key -> fresh.put(key, true));
+    }
+
+    /**
+     * 한번 바로 검사하고 interval마다 다시 검사한다.
+     */
+    public void start(Duration interval) {
+        checkLag();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-lag-"));
+        scheduler.scheduleWithFixedDelay(this::checkLag, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void checkLag() {
+        replicas.forEach((key, dataSource) -> {
+            boolean isFresh = isFresh(dataSource);
+            Boolean before = fresh.put(key, isFresh);
+            if (before != null && before != isFresh) {
+                log.warn("replica {} {}", key, isFresh ? "복구 -> 읽기 다시 보냄" : "지연/장애 -> primary로 읽기");
+            }
+        });
+    }
+
+    private boolean isFresh(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (lagQuery == null) {
+                return connection.isValid(1);
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                if (!rs.next()) {
+                    return false;
+                }
+                double lagSeconds = rs.getDouble(1);
+                return !rs.wasNull() && lagSeconds * 1000 <= maxLag.toMillis();
+            }
+        } catch (Exception e) {
+            log.debug("replica lag check failed", e);
+            return false;
+        }
+    }
+
+    public boolean isFresh(String key) {
+        return fresh.getOrDefault(key, false);
+    }
+
+    public void markStale(String key) {
+        fresh.put(key, false);
+    }
+
+    public void markFresh(String key) {
+        fresh.put(key, true);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        closeQuietly(primary);
+        replicas.values().forEach(this::closeQuietly);
+    }
+
+    private void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("datasource close failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Transactional(readOnly = true)면 replica로, 나머지는 primary로 보낸다.
+ * 밀려있는(stale) replica는 건너뛰고, 다 밀려있으면 primary로 읽는다.
+ *
+ * 트랜잭션이 시작될 때는 아직 readOnly 표시가 안 되어 있어서
+ * 반드시 LazyConnectionDataSourceProxy로 감싸서 첫 SQL 실행 시점에 커넥션을 고르게 해야 한다.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    private final ReplicaDataSources dataSources;
+    private final Strategy strategy;
+    private final List<String> replicaKeys;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(ReplicaDataSources dataSources, Strategy strategy) {
+        this.dataSources = dataSources;
+        this.strategy = strategy;
+        this.replicaKeys = List.copyOf(dataSources.getReplicas().keySet());
+
+        Map<Object, Object> targets = new HashMap<>(dataSources.getReplicas());
+        targets.put(PRIMARY, dataSources.getPrimary());
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(dataSources.getPrimary());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> fresh = replicaKeys.stream()
+                .filter(dataSources::isFresh)
+                .toList();
+        if (fresh.isEmpty()) {
+            return PRIMARY;
+        }
+        return strategy == Strategy.LEAST_LOADED ? leastLoaded(fresh) : roundRobin(fresh);
+    }
+
+    private String roundRobin(List<String> keys) {
+        return keys.get(Math.floorMod(counter.getAndIncrement(), keys.size()));
+    }
+
+    private String leastLoaded(List<String> keys) {
+        return keys.stream()
+                .min(Comparator.comparingInt(this::activeConnections))
+                .orElseThrow();
+    }
+
+    private int activeConnections(String key) {
+        DataSource dataSource = dataSources.getReplicas().get(key);
+        if (dataSource instanceof HikariDataSource hikari) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+        return 0;
+    }
+}
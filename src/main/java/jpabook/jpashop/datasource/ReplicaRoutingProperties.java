@@ -0,0 +1,34 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.routing.*
+ * primary는 spring.datasource 설정을 그대로 쓴다.
+ */
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.datasource.routing")
+public class ReplicaRoutingProperties {
+
+    private boolean enabled;
+    private ReplicaRoutingDataSource.Strategy strategy = ReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+    private String lagQuery; // 지연 초를 돌려주는 SQL, 없으면 커넥션 확인만
+    private Duration maxLag = Duration.ofSeconds(5);
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -12,6 +12,8 @@ public class Delivery {
     @Column(name = "delivery_id")
     private Long id;
     @JsonIgnore
+    // 주인이 아닌 쪽(FK가 orders에 있음)이라 프록시를 만들 수 없어서 LAZY를 줘도 delivery 읽을 때 order를 같이 조회했다.
+    // 바이트코드 향상(build.gradle hibernate.enhancement)으로 필드 접근 시점까지 미룬다.
     @OneToOne(fetch = FetchType.LAZY, mappedBy = "delivery")
     private Order order;
     @Embedded
@@ -22,6 +22,6 @@ public class Member {
     @Embedded
     private Address address;
     @JsonIgnore
-    @OneToMany(mappedBy = "member")
+    @OneToMany(mappedBy = "member") // 주문 수는 컬렉션 말고 MemberRepository.countOrders로
     private List<Order> orders = new ArrayList<>();
 }
@@ -5,6 +5,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDate;
@@ -13,7 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_order_date_id", columnList = "orderDate, order_id")) // 커서 페이징용
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
@@ -24,6 +25,7 @@ public class Order {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "member_id")
     private Member member;
+    @BatchSize(size = 1000) // 영속성 컨텍스트로 읽는 페이지(expand 등, 최대 1000건)의 orderItems를 쿼리 1번에 로딩
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> orderItems = new ArrayList<>();
     @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
@@ -37,7 +39,11 @@ public class Order {
     // 연관관계 편의 메서드
     public void setMember(Member member){
         this.member = member;
-        member.getOrders().add(this);
+        // FK로만 쓰려고 받은 프록시(getReference)면 orders를 건드리려고 회원을 읽지 않는다.
+        // 이 영속성 컨텍스트에서 회원을 안 읽었으니 반대편 컬렉션도 안 보고 있다.
+        if (Hibernate.isInitialized(member)) {
+            member.getOrders().add(this);
+        }
     }
 
     public void addOrderItem(OrderItem orderItem){
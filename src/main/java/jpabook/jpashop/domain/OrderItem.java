@@ -41,9 +41,22 @@ public class OrderItem {
         return orderItem; // OrderItem생성했을때 재고를 줄이고 Order생성메서드에 넘어감
     }
 
+    // 재고를 DB에서 이미 차감(예약)한 경우. 엔티티 재고는 건드리지 않는다.
+    // 여기서 removeStock하면 변경감지로 예전 재고값을 덮어써버린다.
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count){
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
 
     //==비즈니스 로직==//
     public void cancel() {
+        if (getItem().isStockSharded()) {
+            return; // 샤딩된 상품은 OrderService가 재고 샤드로 돌려준다.
+        }
         getItem().addStock(count); // 재고수량 원복
 
     }
@@ -0,0 +1,58 @@
+package jpabook.jpashop.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회용 읽기 모델 (order_summary)
+ * 주문 목록에 합계를 붙이려면 OrderItem을 다 읽어서 getTotalPrice()를 돌려야 하는데,
+ * 주문이 생성/취소/배송상태변경될 때 미리 계산해서 테이블 하나로 들고 있는다.
+ * 원본은 orders/order_item이고 이건 언제든 다시 만들 수 있다.(OrderSummaryService.rebuild)
+ */
+@Entity
+@Table(name = "order_summary", indexes = @Index(name = "idx_order_summary_order_date_id", columnList = "orderDate, order_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId; // orders.order_id 그대로 사용
+
+    private String memberName;
+    private LocalDateTime orderDate;
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus deliveryStatus;
+    private int itemCount; // 주문상품 종류 수
+    private int totalPrice;
+
+    // JPQL 집계 결과를 받는 생성자 (select new ...)
+    public OrderSummary(Long orderId, String memberName, LocalDateTime orderDate, OrderStatus status,
+                        DeliveryStatus deliveryStatus, Long itemCount, Long totalPrice) {
+        this.orderId = orderId;
+        this.memberName = memberName;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.deliveryStatus = deliveryStatus;
+        this.itemCount = itemCount.intValue();
+        this.totalPrice = totalPrice.intValue();
+    }
+
+    /**
+     * 새로 집계한 값으로 덮어쓴다.(변경감지로 update)
+     */
+    public void refresh(OrderSummary latest) {
+        this.memberName = latest.memberName;
+        this.orderDate = latest.orderDate;
+        this.status = latest.status;
+        this.deliveryStatus = latest.deliveryStatus;
+        this.itemCount = latest.itemCount;
+        this.totalPrice = latest.totalPrice;
+    }
+}
@@ -6,6 +6,9 @@ import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +17,8 @@ import java.util.List;
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
 @Getter @Setter
+@BatchSize(size = 1000) // orderItems -> item 지연로딩도 페이지당 쿼리 1번
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item") // 2차 캐시는 루트에만 (Book/Album/Movie 공용)
 public abstract class Item {
 
     @Id
@@ -25,6 +30,12 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
+    //0이면 재고는 stockQuantity 하나로 관리.
+    //1 이상이면 인기상품이라 재고를 item_stock_shard 행 n개에 나눠서 관리한다.(ItemStockService)
+    //이때 stockQuantity는 샤드 합계 스냅샷(샤딩/리밸런스 때 갱신)이라 화면 표시용으로만 쓴다.
+    @ColumnDefault("0")
+    private int stockShardCount;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
@@ -32,6 +43,10 @@ public abstract class Item {
     //data를 가지고 있는 쪽에서 비즈니스 로직을 가지고 있는게 객체지향적으로 관리하기 좋다.
     // 이경우 setter로 stockQuantity를 변경하는게 아니라 아래 2메소드를 사용해서 변경해야 한다.
 
+    public boolean isStockSharded(){
+        return stockShardCount > 0;
+    }
+
     /**
      * stock 증가
      */
@@ -0,0 +1,53 @@
+package jpabook.jpashop.domain.item;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 인기상품 재고 샤드
+ * 주문이 몰리는 상품은 재고를 행 n개에 나눠 두고 주문마다 아무 샤드에서나 뺀다.
+ * 주문들이 item 행 하나에 줄 서서 락을 기다리지 않고 n개 행으로 흩어진다.
+ * 차감/원복은 조건부 UPDATE로만 한다.(ItemStockShardRepository) 2차 캐시에 안 올린다.(쓰기가 너무 잦다)
+ */
+@Entity
+@Table(name = "item_stock_shard",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"item_id", "shard_no"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemStockShard {
+
+    @Id @GeneratedValue
+    @Column(name = "item_stock_shard_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    @Column(name = "shard_no")
+    private int shardNo; // 0 ~ item.stockShardCount - 1
+
+    private int quantity;
+
+    //==생성 메서드==//
+    public static ItemStockShard create(Item item, int shardNo, int quantity){
+        ItemStockShard shard = new ItemStockShard();
+        shard.item = item;
+        shard.shardNo = shardNo;
+        shard.quantity = quantity;
+        return shard;
+    }
+
+    //==비즈니스 로직==//
+    /**
+     * 리밸런스, 락을 잡고 읽은 샤드에만
+     */
+    public void changeQuantity(int quantity){
+        if (quantity < 0) {
+            throw new IllegalArgumentException("재고는 0 이상이어야 합니다.");
+        }
+        this.quantity = quantity;
+    }
+}
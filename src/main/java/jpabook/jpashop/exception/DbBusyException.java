@@ -0,0 +1,19 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * DB 동시 실행 한도를 기다리다 시간 초과
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DbBusyException extends RuntimeException{
+
+    public DbBusyException(String message) {
+        super(message);
+    }
+
+    public DbBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 목록 api의 expand/fields에 지원하지 않는 값이 들어옴
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSelectionException extends RuntimeException{
+
+    public InvalidSelectionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 비동기 주문 큐가 꽉 참 (잠시 후 다시 요청)
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class OrderQueueFullException extends RuntimeException{
+
+    public OrderQueueFullException(String message) {
+        super(message);
+    }
+}
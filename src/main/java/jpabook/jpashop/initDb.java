@@ -1,14 +1,23 @@
 package jpabook.jpashop;
 
-import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.MemberChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
+ * 개발용 샘플 데이터 (jpashop.init-db.enabled=true 일 때만, 운영(prod)에서는 끈다)
+ * 기동을 붙잡지 않게 요청 받을 준비가 끝난 뒤(ACCEPTING_TRAFFIC)에 넣는다.
+ * 회원 이름 인덱스는 이미 만들어진 뒤라 MemberChangedEvent로 커밋 후 반영한다.
+ *
  * 총 주문 2개 미리 데이터 넣기
  * User A
  * JPA1 Book
@@ -19,10 +28,19 @@ import org.springframework.transaction.annotation.Transactional;
  */
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "jpashop.init-db.enabled", havingValue = "true")
 public class initDb {
 
     private final InitService initService;
-    @PostConstruct
+
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event){
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            return;
+        }
+        init();
+    }
+
     public void init(){
         initService.dbInit1();
         initService.dbInit2();
@@ -35,9 +53,11 @@ public class initDb {
     static class InitService{
 
         private final EntityManager em;
+        private final ApplicationEventPublisher eventPublisher;
         public void dbInit1(){
             Member member = createMember("userA","서울","1","1111");
             em.persist(member);
+            eventPublisher.publishEvent(new MemberChangedEvent(member.getId(), member.getName()));
 
             Book book1 = createBook("JPA1 BOOK", 10000, 100);
             em.persist(book1);
@@ -78,6 +98,7 @@ public class initDb {
         public void dbInit2(){
             Member member = createMember("userB","진주","2","2222");
             em.persist(member);
+            eventPublisher.publishEvent(new MemberChangedEvent(member.getId(), member.getName()));
 
             Book book1 = createBook("SPRING1 BOOK", 20000, 200);
             em.persist(book1);
@@ -0,0 +1,88 @@
+package jpabook.jpashop.monitor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 한 구간(요청, 서비스 메서드, 테스트 블록)에서 실행된 SQL 집계
+ * 같은 모양의 SQL이 threshold번을 넘게 나가면 N+1 의심으로 표시한다.
+ * 보통은 한 스레드에서 쓰지만 QueryCountHolder.propagate로 워커 스레드가 같이 집계할 수 있어서 동기화한다.
+ */
+public class QueryCount {
+
+    // in (?, ?, ?) 처럼 파라미터 개수만 다른 SQL은 같은 모양으로 본다.
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int nPlusOneThreshold;
+    private long statements;
+    private long rows;
+    private long jdbcNanos;
+    private final Map<String, Integer> shapeCounts = new HashMap<>();
+    private final Set<String> nPlusOneSuspects = new LinkedHashSet<>();
+
+    public QueryCount(int nPlusOneThreshold) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    synchronized void onStatement(String sql, long elapsedNanos) {
+        statements++;
+        jdbcNanos += elapsedNanos;
+        if (sql == null) {
+            return;
+        }
+        String shape = shapeOf(sql);
+        int count = shapeCounts.merge(shape, 1, Integer::sum);
+        if (count > nPlusOneThreshold) {
+            nPlusOneSuspects.add(shape);
+        }
+    }
+
+    synchronized void onRow() {
+        rows++;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("(?)");
+    }
+
+    public synchronized long getStatements() {
+        return statements;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public synchronized long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+
+    public synchronized boolean hasNPlusOne() {
+        return !nPlusOneSuspects.isEmpty();
+    }
+
+    /**
+     * N+1 의심 SQL 모양 -> 실행 횟수
+     */
+    public synchronized Map<String, Integer> getNPlusOneSuspects() {
+        Map<String, Integer> suspects = new HashMap<>();
+        nPlusOneSuspects.forEach(shape -> suspects.put(shape, shapeCounts.get(shape)));
+        return Collections.unmodifiableMap(suspects);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCount{statements=" + statements + ", rows=" + rows + ", jdbcMillis=" + getJdbcMillis()
+                + ", nPlusOne=" + nPlusOneSuspects.size() + "}";
+    }
+}
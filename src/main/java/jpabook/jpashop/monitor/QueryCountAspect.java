@@ -0,0 +1,61 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Transactional 서비스 메서드 단위 SQL 집계
+ * - jdbc.service.statements / jdbc.service.time / jdbc.service.n_plus_one (tag : class, method)
+ */
+@Slf4j
+@Aspect
+@Component
+public class QueryCountAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    public QueryCountAspect(MeterRegistry meterRegistry,
+                            @Value("${jpashop.query-count.n-plus-one-threshold:" + QueryCountHolder.DEFAULT_N_PLUS_ONE_THRESHOLD + "}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Around("within(jpabook.jpashop.service..*) && " +
+            "(@within(org.springframework.transaction.annotation.Transactional) || " +
+            "@annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object count(ProceedingJoinPoint joinPoint) throws Throwable {
+        QueryCount count = QueryCountHolder.start(nPlusOneThreshold);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            QueryCountHolder.stop(count);
+            record(joinPoint, count);
+        }
+    }
+
+    private void record(ProceedingJoinPoint joinPoint, QueryCount count) {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+
+        DistributionSummary.builder("jdbc.service.statements").tag("class", className).tag("method", method)
+                .register(meterRegistry).record(count.getStatements());
+        Timer.builder("jdbc.service.time").tag("class", className).tag("method", method)
+                .register(meterRegistry).record(count.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        if (count.hasNPlusOne()) {
+            Counter.builder("jdbc.service.n_plus_one").tag("class", className).tag("method", method)
+                    .register(meterRegistry).increment();
+            log.warn("N+1 의심 {}.{} : {}", className, method, count.getNPlusOneSuspects());
+        }
+    }
+}
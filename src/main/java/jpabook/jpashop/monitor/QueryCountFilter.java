@@ -0,0 +1,70 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP 요청 하나 동안 나간 SQL을 세서 Micrometer 지표로 남긴다.
+ * - jdbc.request.statements / jdbc.request.rows : 요청당 statement, row 수
+ * - jdbc.request.time : 요청당 JDBC 실행 시간
+ * - jdbc.request.n_plus_one : 같은 모양 SQL이 threshold번 넘게 나간 요청 수 (로그도 남김)
+ */
+@Slf4j
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    static final String ATTRIBUTE = QueryCount.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    public QueryCountFilter(MeterRegistry meterRegistry,
+                            @Value("${jpashop.query-count.n-plus-one-threshold:" + QueryCountHolder.DEFAULT_N_PLUS_ONE_THRESHOLD + "}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryCount count = QueryCountHolder.start(nPlusOneThreshold);
+        request.setAttribute(ATTRIBUTE, count); // 응답 헤더용
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCountHolder.stop(count);
+            record(request, count);
+        }
+    }
+
+    private void record(HttpServletRequest request, QueryCount count) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        DistributionSummary.builder("jdbc.request.statements").tag("uri", uri)
+                .register(meterRegistry).record(count.getStatements());
+        DistributionSummary.builder("jdbc.request.rows").tag("uri", uri)
+                .register(meterRegistry).record(count.getRows());
+        Timer.builder("jdbc.request.time").tag("uri", uri)
+                .register(meterRegistry).record(count.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        if (count.hasNPlusOne()) {
+            Counter.builder("jdbc.request.n_plus_one").tag("uri", uri)
+                    .register(meterRegistry).increment();
+            log.warn("N+1 의심 {} {} : {}", request.getMethod(), uri, count.getNPlusOneSuspects());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.monitor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 개발할 때 api 응답 헤더로 SQL 집계를 바로 볼 수 있게 한다. (jpashop.query-count.headers: true, dev 프로필만)
+ * 필터가 끝날 땐 이미 응답이 나가버려서 body 쓰기 직전에 넣는다.
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(prefix = "jpashop.query-count", name = "headers", havingValue = "true")
+public class QueryCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(QueryCountFilter.ATTRIBUTE) instanceof QueryCount count) {
+            response.getHeaders().add("X-Query-Count", String.valueOf(count.getStatements()));
+            response.getHeaders().add("X-Query-Rows", String.valueOf(count.getRows()));
+            response.getHeaders().add("X-Query-Time-Ms", String.valueOf(count.getJdbcMillis()));
+            response.getHeaders().add("X-Query-N-Plus-One", String.valueOf(count.hasNPlusOne()));
+        }
+        return body;
+    }
+}
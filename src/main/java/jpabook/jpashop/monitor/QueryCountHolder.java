@@ -0,0 +1,98 @@
+package jpabook.jpashop.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 스레드별로 열려있는 QueryCount 구간들
+ * 요청 > 서비스 메서드처럼 구간이 겹치면 열려있는 구간 전부에 집계된다.
+ */
+public final class QueryCountHolder {
+
+    public static final int DEFAULT_N_PLUS_ONE_THRESHOLD = 5;
+
+    private static final ThreadLocal<Deque<QueryCount>> SCOPES = new ThreadLocal<>();
+
+    private QueryCountHolder() {
+    }
+
+    public static QueryCount start() {
+        return start(DEFAULT_N_PLUS_ONE_THRESHOLD);
+    }
+
+    public static QueryCount start(int nPlusOneThreshold) {
+        Deque<QueryCount> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        QueryCount count = new QueryCount(nPlusOneThreshold);
+        scopes.push(count);
+        return count;
+    }
+
+    public static void stop(QueryCount count) {
+        Deque<QueryCount> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        scopes.remove(count);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    /**
+     * 블록 하나 실행하는 동안의 SQL 집계 (테스트용)
+     */
+    public static QueryCount measure(Runnable block) {
+        QueryCount count = start();
+        try {
+            block.run();
+        } finally {
+            stop(count);
+        }
+        return count;
+    }
+
+    /**
+     * 다른 스레드에서 도는 작업(OrderItemChunkLoader 워커)의 SQL도 지금 스레드에 열려있는 구간들에 집계되게 감싼다.
+     * 지금 열린 구간이 없으면 그대로 돌려준다.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Deque<QueryCount> scopes = SCOPES.get();
+        if (scopes == null) {
+            return task;
+        }
+        List<QueryCount> captured = List.copyOf(scopes);
+        return () -> {
+            Deque<QueryCount> previous = SCOPES.get();
+            SCOPES.set(new ArrayDeque<>(captured));
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    SCOPES.remove();
+                } else {
+                    SCOPES.set(previous);
+                }
+            }
+        };
+    }
+
+    static void onStatement(String sql, long elapsedNanos) {
+        Deque<QueryCount> scopes = SCOPES.get();
+        if (scopes != null) {
+            scopes.forEach(c -> c.onStatement(sql, elapsedNanos));
+        }
+    }
+
+    static void onRow() {
+        Deque<QueryCount> scopes = SCOPES.get();
+        if (scopes != null) {
+            scopes.forEach(QueryCount::onRow);
+        }
+    }
+}
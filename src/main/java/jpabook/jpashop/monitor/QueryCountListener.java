@@ -0,0 +1,28 @@
+package jpabook.jpashop.monitor;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy가 statement 실행/결과 row마다 불러준다.(p6spy-spring-boot-starter가 빈으로 등록된 리스너를 붙여줌)
+ * 지금 스레드에 열려있는 QueryCount 구간에 집계만 하고, 해석은 필터/AOP에서 한다.
+ */
+@Component
+public class QueryCountListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        QueryCountHolder.onStatement(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            QueryCountHolder.onRow();
+        }
+    }
+}
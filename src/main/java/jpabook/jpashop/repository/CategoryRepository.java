@@ -0,0 +1,72 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    private final EntityManager em;
+
+    //부모를 잘못 걸어서 순환이 생겨도 CTE가 끝나도록
+    public static final int MAX_DEPTH = 1000;
+
+    public void save(Category category){
+        em.persist(category);
+    }
+
+    public Category findOne(Long id){
+        return em.find(Category.class, id);
+    }
+
+    /**
+     * rootId 밑의 서브트리 전체를 재귀 CTE 쿼리 한번으로 (루트 포함)
+     * category.child를 지연로딩으로 타고 내려가면 노드마다 쿼리가 1번씩 나간다.
+     * 엔티티로 안 올리고 (id, name, parentId, depth)만 가져와서 조립은 CategoryNode에서 한다.
+     * 정렬은 depth, id 순
+     */
+    @SuppressWarnings("unchecked")
+    public List<CategoryRow> findSubtree(Long rootId){
+        List<Object[]> rows = em.createNativeQuery(
+                        "with recursive tree(category_id, name, parent_id, depth) as (" +
+                                " select c.category_id, c.name, c.parent_id, 0 from category c where c.category_id = :rootId" +
+                                " union all" +
+                                " select c.category_id, c.name, c.parent_id, t.depth + 1 from category c" +
+                                " join tree t on c.parent_id = t.category_id" +
+                                " where t.depth < :maxDepth" +
+                                ") " +
+                                "select category_id, name, parent_id, depth from tree order by depth, category_id")
+                .setParameter("rootId", rootId)
+                .setParameter("maxDepth", MAX_DEPTH)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new CategoryRow(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        row[2] == null ? null : ((Number) row[2]).longValue(),
+                        ((Number) row[3]).intValue()))
+                .toList();
+    }
+
+    /**
+     * 카테고리들에 걸린 상품 (category_item 조인 한번, 여러 카테고리에 걸린 상품은 한번만)
+     */
+    public List<Item> findItems(Collection<Long> categoryIds, int offset, int limit){
+        return em.createQuery(
+                        "select distinct i from Category c " +
+                                "join c.items i " +
+                                "where c.id in :categoryIds " +
+                                "order by i.id", Item.class)
+                .setParameter("categoryIds", categoryIds)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
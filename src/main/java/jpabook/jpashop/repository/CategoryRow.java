@@ -0,0 +1,7 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 카테고리 트리 CTE 결과 한 줄 (parentId는 루트의 부모면 null)
+ */
+public record CategoryRow(Long id, String name, Long parentId, int depth) {
+}
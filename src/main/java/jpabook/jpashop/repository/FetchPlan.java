@@ -0,0 +1,123 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jpabook.jpashop.exception.InvalidSelectionException;
+import org.hibernate.Session;
+import org.hibernate.graph.Graph;
+import org.hibernate.graph.RootGraph;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * expand 파라미터로 정하는 연관관계 로딩 범위 (expand=member,delivery,orderItems.item)
+ *
+ * 요청한 경로만 EntityGraph(fetchgraph)로 만들어서 조회 쿼리에 건다. 요청 안한 연관관계는 조인하지 않는다.
+ * 컨트롤러마다 getMember().getName() 같은 강제 초기화나 findAllWithXxx 메서드 고르기를 대신한다.
+ * 경로는 리포지토리가 정한 목록(allowed) 안에서만 받는다.(아무 그래프나 열어주지 않는다)
+ * orderItems.item을 요청하면 orderItems도 같이 로딩된다.
+ */
+public final class FetchPlan {
+
+    private static final FetchPlan NONE = new FetchPlan(Collections.emptySet());
+
+    private final Set<String> paths;
+
+    private FetchPlan(Set<String> paths) {
+        this.paths = paths;
+    }
+
+    public static FetchPlan none() {
+        return NONE;
+    }
+
+    /**
+     * @param expand  쉼표로 구분한 경로, 비어있으면 연관관계 없이
+     * @param allowed 받을 수 있는 경로
+     */
+    public static FetchPlan parse(String expand, Set<String> allowed) {
+        if (!StringUtils.hasText(expand)) {
+            return NONE;
+        }
+        Set<String> paths = new TreeSet<>();
+        for (String path : expand.split(",")) {
+            path = path.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(path)) {
+                throw new InvalidSelectionException("expand는 " + new TreeSet<>(allowed) + " 중에서 : " + path);
+            }
+            paths.add(path);
+        }
+        return new FetchPlan(Collections.unmodifiableSet(paths));
+    }
+
+    /**
+     * path 또는 그 아래 경로를 요청했는지 (has("orderItems")는 orderItems.item 요청에도 true)
+     */
+    public boolean has(String path) {
+        return paths.stream().anyMatch(p -> p.equals(path) || p.startsWith(path + "."));
+    }
+
+    public boolean isEmpty() {
+        return paths.isEmpty();
+    }
+
+    /**
+     * 컬렉션을 하나라도 조인하는지 (그러면 row가 늘어나서 SQL 페이징을 못한다 -> IdThenFetchPager)
+     */
+    public boolean fetchesCollection(EntityManager em, Class<?> root) {
+        Metamodel metamodel = em.getMetamodel();
+        for (String path : paths) {
+            ManagedType<?> type = metamodel.managedType(root);
+            for (String name : path.split("\\.")) {
+                Attribute<?, ?> attribute = type.getAttribute(name);
+                if (attribute.isCollection()) {
+                    return true;
+                }
+                Class<?> target = ((SingularAttribute<?, ?>) attribute).getType().getJavaType();
+                type = metamodel.managedType(target);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 조회 쿼리에 fetchgraph 힌트로 건다.(SpecHints.HINT_SPEC_FETCH_GRAPH)
+     */
+    public <T> RootGraph<T> toGraph(EntityManager em, Class<T> root) {
+        RootGraph<T> graph = em.unwrap(Session.class).createEntityGraph(root);
+        // 같은 부모 경로(orderItems)의 서브그래프는 하나만
+        Map<String, Graph<?>> subGraphs = new HashMap<>();
+        for (String path : paths) {
+            Graph<?> parent = graph;
+            int dot = path.indexOf('.');
+            int from = 0;
+            while (dot >= 0) {
+                Graph<?> owner = parent;
+                String name = path.substring(from, dot);
+                parent = subGraphs.computeIfAbsent(path.substring(0, dot), k -> owner.addSubGraph(name));
+                from = dot + 1;
+                dot = path.indexOf('.', from);
+            }
+            if (!subGraphs.containsKey(path)) {
+                parent.addAttributeNode(path.substring(from));
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return paths.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 컬렉션 패치조인 + 페이징 (id 먼저, 그 다음 패치조인)
+ *
+ * 컬렉션을 패치조인하면 row가 자식 단위라 SQL limit을 못 걸어서 하이버네이트가 전부 읽고 메모리에서 자른다.(HHH90003004)
+ * 1. 루트 id만 한 페이지 뽑는다. 조인이 없으니 offset/limit 이나 keyset(where id > :after) 을 SQL로 그대로 건다.
+ * 2. 그 id들로 그래프를 패치조인해서 한번에 읽는다. (where 루트.id in :ids)
+ * 2번은 정렬이 필요없다. 1번에서 나온 id 순서대로 다시 맞춘다.
+ * 다음 페이지 여부/커서는 2번 결과가 아니라 1번 id 페이지로 정한다.(Page)
+ * 2번에서 빠지는 루트(inner 패치조인에 안 걸리는 주문, 그 사이 지워진 주문)가 있어도 페이징이 일찍 끝나거나 건너뛰지 않는다.
+ *
+ * yml의 fail_on_pagination_over_collection_fetch: true 때문에 메모리 페이징이 남아있으면 바로 예외가 난다.
+ */
+public final class IdThenFetchPager {
+
+    /**
+     * fetchJpql에 있어야 하는 파라미터 이름
+     */
+    public static final String IDS = "ids";
+
+    private IdThenFetchPager() {
+    }
+
+    /**
+     * 2번 결과 + 1번에서 뽑은 키 페이지
+     * content는 keys보다 적을 수 있다. 다음 페이지 여부와 커서는 keys로 판단할 것.
+     */
+    public record Page<T, K>(List<T> content, List<K> keys) {
+
+        /**
+         * 1번 페이지가 꽉 찼으면 다음 페이지가 있을 수 있다.
+         */
+        public boolean hasNext(int limit) {
+            return keys.size() >= limit;
+        }
+
+        /**
+         * 1번 페이지의 마지막 키 (다음 페이지 커서), 비었으면 null
+         */
+        public K lastKey() {
+            return keys.isEmpty() ? null : keys.get(keys.size() - 1);
+        }
+    }
+
+    /**
+     * @param idQuery   루트 id 한 페이지 (정렬 + 페이징까지 걸어서 넘긴다)
+     * @param fetchJpql 그래프 패치조인 쿼리, where 루트.id in :ids
+     * @param idOf      엔티티 id (id 순서 맞추기용)
+     */
+    public static <T, ID> Page<T, ID> page(EntityManager em, TypedQuery<ID> idQuery,
+                                           String fetchJpql, Class<T> type, Function<T, ID> idOf) {
+        return page(idQuery.getResultList(),
+                ids -> em.createQuery(fetchJpql, type).setParameter(IDS, ids).getResultList(),
+                idOf);
+    }
+
+    /**
+     * EntityManager가 아닌 곳(StatelessSession 등)에서 2번 쿼리를 직접 돌릴 때
+     *
+     * @param ids    1번에서 뽑은 루트 id 한 페이지
+     * @param loader ids -> 그래프 패치조인 결과
+     */
+    public static <T, ID> Page<T, ID> page(List<ID> ids, Function<List<ID>, List<T>> loader, Function<T, ID> idOf) {
+        return page(ids, Function.identity(), loader, idOf);
+    }
+
+    /**
+     * 1번에서 id 대신 커서 키(정렬 컬럼 + id)를 뽑을 때
+     *
+     * @param keys    1번에서 뽑은 키 한 페이지
+     * @param idOfKey 키 -> 루트 id
+     */
+    public static <T, K, ID> Page<T, K> page(List<K> keys, Function<K, ID> idOfKey,
+                                             Function<List<ID>, List<T>> loader, Function<T, ID> idOf) {
+        if (keys.isEmpty()) {
+            return new Page<>(List.of(), keys); // 빈 in () 쿼리는 안 날린다
+        }
+        List<ID> ids = keys.stream().map(idOfKey).toList();
+        List<T> fetched = loader.apply(ids);
+
+        Map<ID, T> byId = new HashMap<>(fetched.size() * 2);
+        for (T entity : fetched) {
+            byId.putIfAbsent(idOf.apply(entity), entity);
+        }
+        // 2번에서 안 나온 루트는 빠진다 (keys는 그대로)
+        List<T> content = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new Page<>(content, keys);
+    }
+
+    /**
+     * 다음 페이지 판단이 필요없을 때 (결과만)
+     */
+    public static <T, ID> List<T> fetch(EntityManager em, TypedQuery<ID> idQuery,
+                                        String fetchJpql, Class<T> type, Function<T, ID> idOf) {
+        return page(em, idQuery, fetchJpql, type, idOf).content();
+    }
+
+    public static <T, ID> List<T> fetch(List<ID> ids, Function<List<ID>, List<T>> loader, Function<T, ID> idOf) {
+        return page(ids, loader, idOf).content();
+    }
+}
@@ -1,10 +1,17 @@
 package jpabook.jpashop.repository;
 
+import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +20,9 @@ public class ItemRepository {
 
     private final EntityManager em;
 
+    //재고 update 전용 쿼리 공간, 어떤 엔티티 테이블과도 안 겹친다 (decreaseStock)
+    private static final String STOCK_SPACE = "item_stock_update";
+
     public void save(Item item) {
         if(item.getId() == null) { // 완전히 새로 생성하는 객체인 경우
             em.persist(item);
@@ -25,8 +35,100 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    /**
+     * 재고 차감을 조건부 UPDATE 한방으로 처리한다.(읽고-빼고-쓰기 X)
+     * 재고가 모자라면 where절에 안 걸려서 0건 수정된다. 동시에 주문이 몰려도 초과판매가 안된다.
+     * 벌크 연산이라 영속성 컨텍스트에 올라와 있는 Item의 stockQuantity는 갱신되지 않는다.
+     * 재고 샤딩된 상품은 stockQuantity가 스냅샷이라 여기서는 항상 실패한다.(ItemStockService로)
+     *
+     * JPQL update로 하면 하이버네이트가 2차 캐시 item 리전을 통째로 비운다.(주문 한 건마다 전체 상품 캐시가 날아감)
+     * 그래서 네이티브 update에 item과 상관없는 쿼리 공간(STOCK_SPACE)만 걸어서 자동 비우기/자동 flush를 막고,
+     * 바뀐 상품 하나만 직접 비운다. 쿼리 캐시(query.item)는 id 목록만 들고 있고 행이 늘거나 줄지 않으니 그대로 둔다.
+     * @return 차감 성공 여부
+     */
+    public boolean decreaseStock(Long itemId, int quantity){
+        int updated = em.createNativeQuery(
+                        "update item set stock_quantity = stock_quantity - :quantity " +
+                                "where item_id = :itemId and stock_quantity >= :quantity and stock_shard_count = 0")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(STOCK_SPACE)
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+        if (updated == 1) {
+            evict(itemId);
+        }
+        return updated == 1;
+    }
+
+    /**
+     * 2차 캐시에서 상품 하나만 뺀다. 커밋 전에 다른 트랜잭션이 예전 값을 다시 넣을 수 있어서 커밋 뒤에 한번 더
+     */
+    private void evict(Long itemId){
+        Cache cache = em.getEntityManagerFactory().getCache();
+        cache.evict(Item.class, itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Item.class, itemId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 재고 샤딩 전환용, item 행 락
+     */
+    public Item findOneForUpdate(Long id){
+        return em.find(Item.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 락 + DB 값으로 다시 읽기 (영속성 컨텍스트에 있던 item이면 find만으로는 예전 샤드 수/재고 그대로라 refresh)
+     */
+    public Item refreshForUpdate(Long id){
+        Item item = em.find(Item.class, id);
+        em.refresh(item, LockModeType.PESSIMISTIC_WRITE);
+        return item;
+    }
+
+    public List<Long> findStockShardedIds(){
+        return em.createQuery("select i.id from Item i where i.stockShardCount > 0", Long.class)
+                .getResultList();
+    }
+
+    public List<Item> findAllById(Collection<Long> ids){
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 주문용 상품 값만 (엔티티 말고 값으로, BatchedOrderService가 여러 요청 것을 모아서 부른다)
+     */
+    public List<ItemSnapshot> findSnapshots(Collection<Long> ids){
+        return em.createQuery("select new jpabook.jpashop.repository.ItemSnapshot(i.id, i.price, i.stockShardCount) " +
+                        "from Item i where i.id in :ids", ItemSnapshot.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * FK로만 쓸 참조 (조회 없이 프록시)
+     */
+    public Item getReference(Long id){
+        return em.getReference(Item.class, id);
+    }
+
+    /**
+     * 상품 목록 화면, 주문 화면에서 매번 부른다. 쿼리 캐시(query.item 리전)
+     * item 테이블이 바뀌면 update-timestamps로 무효화된다.
+     */
     public List<Item> findAll(){
         return em.createQuery("select i from Item i",Item.class)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, "query.item")
                 .getResultList();
     }
 }
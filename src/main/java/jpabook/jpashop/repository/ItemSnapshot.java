@@ -0,0 +1,8 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 주문 만들 때 필요한 상품 값 (영속성 컨텍스트 밖에서 요청끼리 나눠 써도 되는 불변 값)
+ * stockShardCount는 읽은 시점 값이다. 재고 차감 쿼리가 DB에서 다시 확인하니 그 사이에 바뀌면 차감이 실패할 뿐 초과판매는 없다.
+ */
+public record ItemSnapshot(Long id, int price, int stockShardCount) {
+}
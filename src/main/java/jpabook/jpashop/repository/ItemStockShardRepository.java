@@ -0,0 +1,82 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ItemStockShardRepository {
+
+    private final EntityManager em;
+
+    public void save(ItemStockShard shard){
+        em.persist(shard);
+    }
+
+    /**
+     * 샤드 하나에서 조건부 차감 (ItemRepository.decreaseStock과 같은 방식, 락은 그 샤드 행에만)
+     * @return 차감 성공 여부, 그 샤드 재고가 모자라면 false
+     */
+    public boolean decrease(Long itemId, int shardNo, int quantity){
+        int updated = em.createQuery(
+                        "update ItemStockShard s set s.quantity = s.quantity - :quantity " +
+                                "where s.item.id = :itemId and s.shardNo = :shardNo and s.quantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("shardNo", shardNo)
+                .executeUpdate();
+        return updated == 1;
+    }
+
+    public boolean increase(Long itemId, int shardNo, int quantity){
+        int updated = em.createQuery(
+                        "update ItemStockShard s set s.quantity = s.quantity + :quantity " +
+                                "where s.item.id = :itemId and s.shardNo = :shardNo")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("shardNo", shardNo)
+                .executeUpdate();
+        return updated == 1;
+    }
+
+    /**
+     * 전체 재고 (락 없이 읽어서 근사값)
+     */
+    public int sumQuantity(Long itemId){
+        return em.createQuery("select coalesce(sum(s.quantity), 0) from ItemStockShard s where s.item.id = :itemId", Long.class)
+                .setParameter("itemId", itemId)
+                .getSingleResult()
+                .intValue();
+    }
+
+    public List<ItemStockShard> findAll(Long itemId){
+        return em.createQuery("select s from ItemStockShard s where s.item.id = :itemId order by s.shardNo", ItemStockShard.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+    }
+
+    /**
+     * 샤드 전부 락 (select for update)
+     * 여러 트랜잭션이 같이 잡아도 데드락이 안 나게 항상 shardNo 순서로 잡는다.
+     * 같은 트랜잭션에서 이미 읽은 샤드는 벌크 UPDATE(decrease/increase)로 DB 값이 바뀌었을 수 있어서 refresh 한다.
+     */
+    public List<ItemStockShard> findAllForUpdate(Long itemId){
+        List<ItemStockShard> shards = em.createQuery("select s from ItemStockShard s where s.item.id = :itemId order by s.shardNo", ItemStockShard.class)
+                .setParameter("itemId", itemId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        shards.forEach(em::refresh);
+        return shards;
+    }
+
+    public void deleteAll(Long itemId){
+        em.createQuery("delete from ItemStockShard s where s.item.id = :itemId")
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+}
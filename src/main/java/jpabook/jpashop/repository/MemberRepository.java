@@ -3,10 +3,16 @@ package jpabook.jpashop.repository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.search.MemberNameEntry;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor //spring data JPA가 엔티티매니저 주입해줌
@@ -15,6 +21,9 @@ public class MemberRepository {
     //@PersistenceContext //스프링이 엔티티매니저 주입(생성자 주입으로 대체하였음)
     private final EntityManager em;
 
+    //expand로 받을 수 있는 연관관계 (FetchPlan)
+    public static final Set<String> EXPANDABLE = Set.of("orders");
+
     public void save(Member member){
         em.persist(member);
     }
@@ -22,15 +31,101 @@ public class MemberRepository {
     public Member findOne(Long id){
         return em.find(Member.class, id);
     }
+
+    /**
+     * FK로만 쓸 참조 (조회 없이 프록시)
+     */
+    public Member getReference(Long id){
+        return em.getReference(Member.class, id);
+    }
     
     public List<Member> findAll(){
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
+    /**
+     * 회원 목록 커서 페이징 (id 순, afterId가 null이면 처음부터)
+     */
+    public List<Member> findPage(Long afterId, int limit){
+        return em.createQuery("select m from Member m where m.id > :afterId order by m.id", Member.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 회원 목록 커서 페이징 + expand로 고른 연관관계
+     * orders를 요청하면 회원 id 페이지 -> 회원 + 주문 조회 2번, 아니면 1번
+     */
+    public List<Member> findPage(FetchPlan plan, Long afterId, int limit){
+        if (!plan.fetchesCollection(em, Member.class)) {
+            return findPage(afterId, limit);
+        }
+        RootGraph<Member> graph = plan.toGraph(em, Member.class);
+        List<Long> ids = em.createQuery("select m.id from Member m where m.id > :afterId order by m.id", Long.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .getResultList();
+        return IdThenFetchPager.fetch(ids,
+                page -> em.createQuery("select m from Member m where m.id in :" + IdThenFetchPager.IDS, Member.class)
+                        .setParameter(IdThenFetchPager.IDS, page)
+                        .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, graph)
+                        .getResultList(),
+                Member::getId);
+    }
+
+    public long count(){
+        return em.createQuery("select count(m) from Member m", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * 회원 주문 수 (member.orders를 초기화하지 않고 count 쿼리 1번)
+     */
+    public long countOrders(Long memberId){
+        return em.createQuery("select count(o) from Order o where o.member.id = :memberId", Long.class)
+                .setParameter("memberId", memberId)
+                .getSingleResult();
+    }
+
+    public List<Member> findAllById(Collection<Long> ids){
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 주문용 회원 값만 (엔티티 말고 값으로, BatchedOrderService가 여러 요청 것을 모아서 부른다)
+     */
+    public List<MemberSnapshot> findSnapshots(Collection<Long> ids){
+        return em.createQuery("select new jpabook.jpashop.repository.MemberSnapshot(" +
+                        "m.id, m.address.city, m.address.street, m.address.zipcode) " +
+                        "from Member m where m.id in :ids", MemberSnapshot.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 회원 이름 인덱스 재생성용 : afterId 다음부터 limit명의 (id, 이름), id 순
+     */
+    public List<MemberNameEntry> findNameEntries(Long afterId, int limit){
+        return em.createQuery("select new jpabook.jpashop.search.MemberNameEntry(m.id, m.name) from Member m " +
+                        "where m.id > :afterId order by m.id", MemberNameEntry.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 회원가입 중복검사용. 쿼리 캐시(query.member 리전), 키는 파라미터(name)
+     * member 테이블에 insert/update가 커밋되면 이 리전 결과는 전부 무효
+     */
     public List<Member> findByName(String name){
         return em.createQuery("select m from Member m where m.name =:name",Member.class)
                 .setParameter("name",name)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, "query.member")
                 .getResultList();
     }
 
@@ -0,0 +1,14 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+
+/**
+ * 주문 만들 때 필요한 회원 값 (영속성 컨텍스트 밖에서 요청끼리 나눠 써도 되는 불변 값)
+ */
+public record MemberSnapshot(Long id, Address address) {
+
+    // select new 용 (임베디드는 컬럼으로 풀어서 받는다)
+    public MemberSnapshot(Long id, String city, String street, String zipcode) {
+        this(id, new Address(city, street, zipcode));
+    }
+}
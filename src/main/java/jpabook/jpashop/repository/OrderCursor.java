@@ -0,0 +1,55 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 커서(keyset) 페이징용 위치값
+ * 마지막으로 읽은 주문의 (orderDate, id)를 들고 있고, 클라이언트에는 불투명한 문자열 토큰으로 내려준다.
+ * 토큰 형식은 내부 사항이라 클라이언트는 받은 값을 그대로 after 파라미터로 돌려주기만 하면 된다.
+ */
+@Getter
+public class OrderCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime orderDate;
+    private final Long orderId;
+
+    public OrderCursor(LocalDateTime orderDate, Long orderId) {
+        this.orderDate = orderDate;
+        this.orderId = orderId;
+    }
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.getOrderDate(), order.getId());
+    }
+
+    public static OrderCursor of(OrderSummary summary) {
+        return new OrderCursor(summary.getOrderDate(), summary.getOrderId());
+    }
+
+    public String encode() {
+        String raw = orderDate + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.lastIndexOf(SEPARATOR);
+            LocalDateTime orderDate = LocalDateTime.parse(raw.substring(0, idx));
+            Long orderId = Long.valueOf(raw.substring(idx + 1));
+            return new OrderCursor(orderDate, orderId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("잘못된 커서 값입니다: " + token, e);
+        }
+    }
+}
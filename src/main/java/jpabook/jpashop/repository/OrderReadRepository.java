@@ -0,0 +1,105 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Order;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 읽어서 바로 DTO로 바꾸는 api용 주문 조회 (StatelessSession)
+ *
+ * 보통 조회는 엔티티를 영속성 컨텍스트에 다 들고 있고, 변경감지용 스냅샷(로딩 시점 값 복사본)까지 남긴다.
+ * DTO로 바꾸고 버릴 엔티티라 둘 다 필요없다. StatelessSession은 영속성 컨텍스트가 없어서 읽은 엔티티가 바로 준영속이다.
+ * 대신 지연로딩/배치페치가 안되니 DTO에 필요한 연관관계는 전부 패치조인으로 명시해서 같이 읽는다.
+ * (반환된 엔티티는 그래프가 다 채워져 있어서 트랜잭션 밖에서 DTO로 바꿔도 된다)
+ *
+ * 커넥션은 지금 트랜잭션 것을 같이 쓴다. 읽기전용 트랜잭션(OrderReadService) 안에서만 부를 것.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderReadRepository {
+
+    private final EntityManager em;
+
+    private static final String WITH_MEMBER_DELIVERY =
+            "select o from Order o " +
+                    "join fetch o.member m " +
+                    "join fetch o.delivery d ";
+
+    private static final String WITH_ITEM_BY_IDS =
+            WITH_MEMBER_DELIVERY +
+                    "join fetch o.orderItems oi " +
+                    "join fetch oi.item i " +
+                    "where o.id in :" + IdThenFetchPager.IDS;
+
+    /**
+     * 주문 + 회원 + 배송 (ToOne만 조인해서 페이징도 DB에서), 쿼리 1번
+     */
+    public List<Order> findAllWithMemberDelivery(int offset, int limit) {
+        return stateless(session -> session.createSelectionQuery(WITH_MEMBER_DELIVERY + "order by o.id", Order.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * 주문 + 회원 + 배송 + 주문상품 + 상품, 쿼리 2번 (주문 id 페이지, 패치조인)
+     */
+    public IdThenFetchPager.Page<Order, Long> findAllWithItem(int offset, int limit) {
+        return stateless(session -> IdThenFetchPager.page(session
+                        .createSelectionQuery("select o.id from Order o order by o.id", Long.class)
+                        .setFirstResult(offset)
+                        .setMaxResults(limit)
+                        .getResultList(),
+                ids -> withItem(session, ids), Order::getId));
+    }
+
+    /**
+     * v3.1 커서(keyset) 페이징 (최신 주문부터)
+     * offset은 앞 페이지 row를 전부 읽고 버려서 뒷 페이지로 갈수록 느려진다.
+     * 마지막으로 읽은 (orderDate, id) 다음 row부터 seek하면 몇번째 페이지든 비용이 같다. (order_date, order_id) 인덱스를 탄다.
+     * 쿼리 2번 (커서 페이지, 패치조인)
+     */
+    public IdThenFetchPager.Page<Order, OrderCursor> findAllWithItem(OrderCursor after, int limit) {
+        return stateless(session -> {
+            // id와 같이 커서 위치도 뽑아둔다. 패치조인에서 빠지는 주문이 있어도 다음 커서는 여기서 나온다.
+            String hql = "select new jpabook.jpashop.repository.OrderCursor(o.orderDate, o.id) from Order o ";
+            if (after != null) {
+                hql += "where o.orderDate < :orderDate " +
+                        "or (o.orderDate = :orderDate and o.id < :orderId) ";
+            }
+            SelectionQuery<OrderCursor> keys = session.createSelectionQuery(hql + "order by o.orderDate desc, o.id desc", OrderCursor.class);
+            if (after != null) {
+                keys.setParameter("orderDate", after.getOrderDate())
+                        .setParameter("orderId", after.getOrderId());
+            }
+            return IdThenFetchPager.page(keys.setMaxResults(limit).getResultList(), OrderCursor::getOrderId,
+                    ids -> withItem(session, ids), Order::getId);
+        });
+    }
+
+    private static List<Order> withItem(StatelessSession session, List<Long> ids) {
+        return session.createSelectionQuery(WITH_ITEM_BY_IDS, Order.class)
+                .setParameter(IdThenFetchPager.IDS, ids)
+                .getResultList();
+    }
+
+    private <T> T stateless(Function<StatelessSession, T> work) {
+        Session session = em.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            // 트랜잭션 커넥션을 넘겨받았으니 닫아도 커넥션은 안 닫힌다
+            try (StatelessSession stateless = session.getSessionFactory()
+                    .withStatelessOptions()
+                    .connection(connection)
+                    .openStatelessSession()) {
+                return work.apply(stateless);
+            }
+        });
+    }
+}
@@ -2,21 +2,46 @@ package jpabook.jpashop.repository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.search.MemberNameIndex;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
 
     private final EntityManager em;
+    private final Optional<MemberNameIndex> memberNameIndex; // jpashop.member-search.enabled=false면 없음
+    private final OrderSearchQueries orderSearchQueries;
+
+    private static final int MAX_SEARCH_LIMIT = 1000;
+
+    //expand로 받을 수 있는 연관관계 (FetchPlan)
+    public static final Set<String> EXPANDABLE = Set.of("member", "delivery", "orderItems", "orderItems.item");
+
+    //이름 인덱스로 찾은 회원이 이보다 많으면 in 대신 like로
+    private static final int MAX_INDEXED_MEMBER_IDS = 1000;
+
+    // v3 패치조인 (IdThenFetchPager 2번째 쿼리)
+    // 실무에서는 querydsl로 간단하게 짤 수 있다.
+    // 하이버네이트6에서는 패치조인을 하면 자동으로 중복제거를 해준다.(distinct안써도됨)
+    // distinct넣어도 DB에서는 적용안됨(값이 완전히 똑같이 않으니까), JPA에서 리스트담을때 엔티티 중복제거하는 용도임.
+    private static final String WITH_ITEM_BY_IDS =
+            "select o from Order o " +
+                    "join fetch o.member m " +
+                    "join fetch o.delivery d " +
+                    "join fetch o.orderItems oi " +
+                    "join fetch oi.item i " +
+                    "where o.id in :" + IdThenFetchPager.IDS;
 
     public void save(Order order){
         em.persist(order);
@@ -26,27 +51,59 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
+    /**
+     * 대량 저장할 때 모아둔 insert를 배치로 내보내고 영속성 컨텍스트를 비운다.(안 비우면 계속 쌓여서 느려짐)
+     */
+    public void flushAndClear(){
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * 목록 api totalCount용 (OrderSearchQueries에 등록된 count 쿼리)
+     */
+    public long count(){
+        return orderSearchQueries.count(em).getSingleResult();
+    }
+
+    /**
+     * 주문 검색 (상태, 회원명 부분일치) + 정렬, 페이징
+     * 조건 모양마다 미리 등록해둔 named query를 쓴다.(OrderSearchQueries)
+     */
     public List<Order> findAllByCriteria(OrderSearch orderSearch) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
-        Root<Order> o = cq.from(Order.class);
-        Join<Order, Object> m = o.join("member", JoinType.INNER); //회원과 조인
-        List<Predicate> criteria = new ArrayList<>();
+        OrderSearchQueries.NameFilter nameFilter = OrderSearchQueries.NameFilter.NONE;
+        List<Long> memberIds = null;
+        //회원 이름 검색
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            // like '%이름%'는 인덱스를 못타서 회원 전체를 훑는다. 이름 인덱스로 회원 id를 먼저 찾고 member_id(FK 인덱스)로 건다.
+            Optional<List<Long>> found = memberNameIndex
+                    .flatMap(index -> index.findMemberIds(orderSearch.getMemberName(), MAX_INDEXED_MEMBER_IDS));
+            if (found.isPresent()) {
+                if (found.get().isEmpty()) {
+                    return List.of(); // 걸리는 회원이 없으면 쿼리 안함
+                }
+                nameFilter = OrderSearchQueries.NameFilter.MEMBER_IDS;
+                memberIds = found.get();
+            } else {
+                nameFilter = OrderSearchQueries.NameFilter.LIKE;
+            }
+        }
+        OrderSort sort = orderSearch.getSort() == null ? OrderSort.ID_ASC : orderSearch.getSort();
+        TypedQuery<Order> query = orderSearchQueries.create(em,
+                new OrderSearchQueries.Shape(orderSearch.getOrderStatus() != null, nameFilter, sort));
+
         //주문 상태 검색
         if (orderSearch.getOrderStatus() != null) {
-            Predicate status = cb.equal(o.get("status"),
-                    orderSearch.getOrderStatus());
-            criteria.add(status);
+            query.setParameter("status", orderSearch.getOrderStatus());
         }
-        //회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            Predicate name =
-                    cb.like(m.<String>get("name"), "%" +
-                            orderSearch.getMemberName() + "%");
-            criteria.add(name); }
-        cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000); //최대 1000건
-        return query.getResultList();
+        if (nameFilter == OrderSearchQueries.NameFilter.LIKE) {
+            query.setParameter("name", "%" + orderSearch.getMemberName() + "%");
+        } else if (nameFilter == OrderSearchQueries.NameFilter.MEMBER_IDS) {
+            query.setParameter("memberIds", memberIds);
+        }
+        return query.setFirstResult(Math.max(orderSearch.getOffset(), 0))
+                .setMaxResults(Math.min(Math.max(orderSearch.getLimit(), 1), MAX_SEARCH_LIMIT)) //최대 1000건
+                .getResultList();
     }
 
     /**
@@ -74,22 +131,56 @@ public class OrderRepository {
         return null;
     }
 
-    public List<Order> findAllWithItem() {
-        // 실무에서는 querydsl로 간단하게 짤 수 있다.
-        // 하이버네이트6에서는 패치조인을 하면 자동으로 중복제거를 해준다.(distinct안써도됨)
-        // distinct넣어도 DB에서는 적용안됨(값이 완전히 똑같이 않으니까), JPA에서 리스트담을때 엔티티 중복제거하는 용도임.
-        return em.createQuery(
-                /*"select distinct o from Order o " +*/
-                        "select o from Order o " +
-                        "join fetch o.member m " +
-                        "join fetch o.delivery d " +
-                        "join fetch o.orderItems oi " +
-                        "join fetch oi.item i",Order.class)
-                // firstResult/maxResults specified with collection fetch; applying in memory
-                // 다불러와서 페이징을 하겠다는거. outOfMemory 에러 터지기 딱 좋음.
-                .setFirstResult(1)
-                .setMaxResults(100)
+    /**
+     * v3버전 : 컬렉션 패치조인 + 페이징
+     * 예전에는 패치조인 쿼리에 바로 setFirstResult/setMaxResults를 걸어서
+     * "firstResult/maxResults specified with collection fetch; applying in memory"
+     * 다불러와서 페이징을 했다. outOfMemory 에러 터지기 딱 좋음.
+     * 지금은 주문 id 한 페이지를 먼저 SQL로 자르고, 그 id들로만 패치조인한다.(IdThenFetchPager, 쿼리 2번)
+     * 상품 없는 주문은 패치조인(inner)에서 빠지니 다음 페이지 여부/커서는 Page.keys(id 페이지)로 본다.
+     */
+    public IdThenFetchPager.Page<Order, Long> findAllWithItem(int offset, int limit) {
+        TypedQuery<Long> ids = em.createQuery("select o.id from Order o order by o.id", Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit);
+        return IdThenFetchPager.page(em, ids, WITH_ITEM_BY_IDS, Order.class, Order::getId);
+    }
+
+    /**
+     * v3버전 keyset : afterOrderId 다음 주문부터 (null이면 처음부터)
+     */
+    public IdThenFetchPager.Page<Order, Long> findAllWithItem(Long afterOrderId, int limit) {
+        TypedQuery<Long> ids = em.createQuery(
+                "select o.id from Order o where o.id > :after order by o.id", Long.class)
+                .setParameter("after", afterOrderId == null ? 0L : afterOrderId)
+                .setMaxResults(limit);
+        return IdThenFetchPager.page(em, ids, WITH_ITEM_BY_IDS, Order.class, Order::getId);
+    }
+
+    /**
+     * expand로 고른 연관관계만 같이 읽는다. (id 순)
+     * 컬렉션이 없으면 쿼리 1번(SQL 페이징), orderItems가 있으면 주문 id 페이지 -> 그래프 조회 2번
+     * expand가 비어있으면 orders 테이블만 읽는다.
+     */
+    public List<Order> findAll(FetchPlan plan, int offset, int limit) {
+        RootGraph<Order> graph = plan.toGraph(em, Order.class);
+        if (!plan.fetchesCollection(em, Order.class)) {
+            return em.createQuery("select o from Order o order by o.id", Order.class)
+                    .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, graph)
+                    .setFirstResult(offset)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        List<Long> ids = em.createQuery("select o.id from Order o order by o.id", Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
                 .getResultList();
+        return IdThenFetchPager.fetch(ids,
+                page -> em.createQuery("select o from Order o where o.id in :" + IdThenFetchPager.IDS, Order.class)
+                        .setParameter(IdThenFetchPager.IDS, page)
+                        .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, graph)
+                        .getResultList(),
+                Order::getId);
     }
 
     /**
@@ -9,4 +9,9 @@ public class OrderSearch {
 
     private String memberName; //회원이름
     private OrderStatus orderStatus; //주문상태[ORDER, CANCEL]
+
+    //페이징, 정렬 (안주면 예전처럼 id순 최대 1000건)
+    private OrderSort sort = OrderSort.ID_ASC;
+    private int offset = 0;
+    private int limit = 1000;
 }
@@ -0,0 +1,131 @@
+package jpabook.jpashop.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import jpabook.jpashop.domain.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 주문 검색(findAllByCriteria) 쿼리 등록소
+ *
+ * 예전에는 검색할 때마다 Criteria로 쿼리 객체를 새로 만들었고, 하이버네이트는 criteria 쿼리를
+ * 플랜 캐시에 안 올려서 매번 SQM 변환 + SQL 렌더링을 다시 했다.
+ * 검색 조건의 모양(상태 조건 유무, 회원명 조건 종류, 정렬)마다 JPQL을 한번만 만들어서 named query로 등록하고
+ * 이후에는 이름으로 꺼내서 값만 바인딩한다.(파싱/해석된 결과를 재사용)
+ * 목록 api totalCount용 주문 수 쿼리(count)도 여기서 같이 등록한다.
+ *
+ * 지표 : order.search.plan (result=hit 이미 등록된 모양, miss 새로 등록)
+ */
+@Component
+public class OrderSearchQueries {
+
+    private final EntityManagerFactory emf;
+    private static final String COUNT = "Order.count";
+
+    private final ConcurrentMap<Shape, String> names = new ConcurrentHashMap<>();
+    private volatile boolean countRegistered;
+    private final Counter hits;
+    private final Counter misses;
+
+    public OrderSearchQueries(EntityManagerFactory emf, MeterRegistry meterRegistry) {
+        this.emf = emf;
+        this.hits = Counter.builder("order.search.plan").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("order.search.plan").tag("result", "miss").register(meterRegistry);
+    }
+
+    public enum NameFilter { NONE, LIKE, MEMBER_IDS }
+
+    /**
+     * 바인딩 파라미터 : status(상태 조건이 있으면), name(LIKE), memberIds(MEMBER_IDS)
+     */
+    public record Shape(boolean status, NameFilter nameFilter, OrderSort sort) {
+
+        String queryName() {
+            return "Order.search." + (status ? "status." : "") + nameFilter.name().toLowerCase() + "." + sort.name().toLowerCase();
+        }
+
+        String jpql() {
+            List<String> where = new ArrayList<>();
+            if (status) {
+                where.add("o.status = :status");
+            }
+            if (nameFilter == NameFilter.LIKE) {
+                where.add("m.name like :name");
+            } else if (nameFilter == NameFilter.MEMBER_IDS) {
+                where.add("m.id in :memberIds");
+            }
+            String jpql = "select o from Order o join o.member m";
+            if (!where.isEmpty()) {
+                jpql += " where " + String.join(" and ", where);
+            }
+            return jpql + " order by " + sort.getOrderBy();
+        }
+    }
+
+    public TypedQuery<Order> create(EntityManager em, Shape shape) {
+        String name = names.get(shape);
+        if (name == null) {
+            name = names.computeIfAbsent(shape, this::register);
+        } else {
+            hits.increment();
+        }
+        return em.createNamedQuery(name, Order.class);
+    }
+
+    /**
+     * 목록 api totalCount용, 조인 없이 orders만 센다.(주문은 회원/배송이 항상 있어서 건수가 같다)
+     */
+    public TypedQuery<Long> count(EntityManager em) {
+        if (!countRegistered) {
+            registerCount();
+        }
+        return em.createNamedQuery(COUNT, Long.class);
+    }
+
+    private String register(Shape shape) {
+        misses.increment();
+        addNamedQuery(shape.queryName(), shape.jpql(), Order.class);
+        return shape.queryName();
+    }
+
+    private synchronized void registerCount() {
+        if (!countRegistered) {
+            addNamedQuery(COUNT, "select count(o) from Order o", Long.class);
+            countRegistered = true;
+        }
+    }
+
+    private void addNamedQuery(String name, String jpql, Class<?> resultType) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            // 등록할 때 한번 파싱/검증하고, 이후 createNamedQuery는 그 결과를 복사해서 쓴다.
+            emf.addNamedQuery(name, em.createQuery(jpql, resultType));
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 모양별 쿼리 이름 (통계 api용)
+     */
+    public Map<Shape, String> registered() {
+        return Map.copyOf(names);
+    }
+
+    public double hitCount() {
+        return hits.count();
+    }
+
+    public double missCount() {
+        return misses.count();
+    }
+}
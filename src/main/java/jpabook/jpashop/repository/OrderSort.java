@@ -0,0 +1,23 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 주문 검색 정렬 (order by는 바인딩 파라미터로 못 넘겨서 정렬마다 쿼리가 따로다)
+ * 페이징 결과가 흔들리지 않게 id를 마지막 정렬 기준으로 꼭 넣는다.
+ */
+public enum OrderSort {
+
+    ID_ASC("o.id asc"),
+    ID_DESC("o.id desc"),
+    ORDER_DATE_DESC("o.orderDate desc, o.id desc"),
+    ORDER_DATE_ASC("o.orderDate asc, o.id asc");
+
+    private final String orderBy;
+
+    OrderSort(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+}
@@ -0,0 +1,91 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jpabook.jpashop.domain.OrderSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    public void save(OrderSummary summary){
+        em.persist(summary);
+    }
+
+    public long count(){
+        return em.createQuery("select count(s) from OrderSummary s", Long.class)
+                .getSingleResult();
+    }
+
+    public List<OrderSummary> findAllById(Collection<Long> orderIds){
+        return em.createQuery("select s from OrderSummary s where s.orderId in :orderIds", OrderSummary.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 회원 이름이 바뀌었을 때 그 회원 주문 요약 전부 (벌크 UPDATE)
+     */
+    public int updateMemberName(Long memberId, String name){
+        return em.createQuery("update OrderSummary s set s.memberName = :name " +
+                        "where s.orderId in (select o.id from Order o where o.member.id = :memberId)")
+                .setParameter("name", name)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 원본 테이블(orders, member, delivery, order_item)에서 요약을 새로 계산한다.
+     * 반환값은 영속 상태가 아니다.(select new)
+     */
+    public List<OrderSummary> aggregate(Collection<Long> orderIds){
+        return em.createQuery(
+                        "select new jpabook.jpashop.domain.OrderSummary(" +
+                                "o.id, m.name, o.orderDate, o.status, d.status, count(oi), sum(oi.orderPrice * oi.count)) " +
+                                "from Order o " +
+                                "join o.member m " +
+                                "join o.delivery d " +
+                                "join o.orderItems oi " +
+                                "where o.id in :orderIds " +
+                                "group by o.id, m.name, o.orderDate, o.status, d.status", OrderSummary.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 재생성 배치용 : 주문 id를 afterId 다음부터 limit개 (id 순)
+     */
+    public List<Long> findOrderIds(Long afterId, int limit){
+        return em.createQuery("select o.id from Order o where o.id > :afterId order by o.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 최신순 커서 페이징, order_summary 한 테이블만 읽는다.(조인, 컬렉션 로딩 없음)
+     */
+    public List<OrderSummary> findPage(OrderCursor after, int limit){
+        String jpql = "select s from OrderSummary s ";
+        if (after != null) {
+            jpql += "where s.orderDate < :orderDate " +
+                    "or (s.orderDate = :orderDate and s.orderId < :orderId) ";
+        }
+        jpql += "order by s.orderDate desc, s.orderId desc";
+
+        TypedQuery<OrderSummary> query = em.createQuery(jpql, OrderSummary.class);
+        if (after != null) {
+            query.setParameter("orderDate", after.getOrderDate())
+                    .setParameter("orderId", after.getOrderId());
+        }
+        return query.setMaxResults(limit)
+                .getResultList();
+    }
+}
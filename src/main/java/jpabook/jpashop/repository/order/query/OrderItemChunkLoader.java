@@ -0,0 +1,151 @@
+package jpabook.jpashop.repository.order.query;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.concurrency.DbConcurrencyGate;
+import jpabook.jpashop.datasource.ConnectionPools;
+import jpabook.jpashop.monitor.QueryCountHolder;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * v5 컬렉션(OrderItem) 로딩을 id 청크로 나눠서 병렬로 돌린다.
+ *
+ * 주문이 아주 많으면 in (:orderIds)가 수만개짜리가 돼서 DB 파라미터 한도에 걸리거나 실행계획이 나빠지고,
+ * 한 스레드에서 다 돌아서 느리다. in-chunk-size개씩 자르고 청크마다 별도 스레드에서
+ * 자기 EntityManager(읽기전용)로 조회해서 결과만 합친다.
+ *
+ * 워커는 청크마다 커넥션을 하나 더 쓴다. 부르는 쪽은 보통 이미 커넥션을 하나 쥐고 있어서 워커가 풀을 말리지 않게
+ * - 워커 수는 parallelism과 (커넥션 풀 크기 - 1) 중 작은 값, 모든 요청이 같이 나눠 쓴다.
+ * - DbConcurrencyGate가 켜져 있으면(virtual thread) 워커도 자리를 받아야 한다.
+ * - 워커 자리가 없으면 기다리지 않고 그 청크는 부른 스레드가 자기 EntityManager(지금 커넥션)로 돌린다.
+ * 첫 청크는 항상 부른 스레드가 돌린다. 워커가 하나도 없어도 결과는 같다.
+ * 워커 SQL도 부른 스레드의 QueryCount 구간에 집계된다.
+ */
+@Component
+public class OrderItemChunkLoader {
+
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+    private final Optional<DbConcurrencyGate> dbConcurrencyGate;
+    private final int chunkSize;
+    private final Semaphore workerPermits;
+    private final ExecutorService executor;
+
+    public OrderItemChunkLoader(EntityManagerFactory emf,
+                                EntityManager em,
+                                DataSource dataSource,
+                                Optional<DbConcurrencyGate> dbConcurrencyGate,
+                                @Value("${jpashop.order-query.in-chunk-size:1000}") int chunkSize,
+                                @Value("${jpashop.order-query.parallelism:4}") int parallelism) {
+        this.emf = emf;
+        this.em = em;
+        this.dbConcurrencyGate = dbConcurrencyGate;
+        this.chunkSize = chunkSize;
+        int workers = Math.min(parallelism, ConnectionPools.maximumPoolSize(dataSource).orElse(parallelism + 1) - 1);
+        this.workerPermits = new Semaphore(Math.max(workers, 0));
+        // 자리(workerPermits)를 받은 만큼만 넘기니 큐는 워커 수 이상 안 쌓인다.
+        this.executor = Executors.newFixedThreadPool(Math.max(workers, 1), new CustomizableThreadFactory("order-item-loader-"));
+    }
+
+    /**
+     * 청크 하나면 그냥 나눌 필요 없음
+     */
+    public boolean needsChunking(List<Long> orderIds) {
+        return orderIds.size() > chunkSize;
+    }
+
+    public Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        List<List<Long>> chunks = partition(orderIds);
+        List<CompletableFuture<List<OrderItemQueryDto>>> futures = new ArrayList<>();
+        List<List<Long>> callerChunks = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            List<Long> chunk = chunks.get(i);
+            if (i > 0 && acquireWorker()) {
+                futures.add(CompletableFuture.supplyAsync(
+                        QueryCountHolder.propagate(() -> findOrderItemsInWorker(chunk)), executor));
+            } else {
+                callerChunks.add(chunk);
+            }
+        }
+
+        // 청크끼리 orderId가 안 겹쳐서 그냥 합치면 된다.
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = new HashMap<>();
+        for (List<Long> chunk : callerChunks) {
+            orderItemMap.putAll(groupByOrderId(findOrderItems(em, chunk)));
+        }
+        for (CompletableFuture<List<OrderItemQueryDto>> future : futures) {
+            orderItemMap.putAll(groupByOrderId(future.join()));
+        }
+        return orderItemMap;
+    }
+
+    private boolean acquireWorker() {
+        if (!workerPermits.tryAcquire()) {
+            return false;
+        }
+        if (dbConcurrencyGate.isPresent() && !dbConcurrencyGate.get().tryAcquireExtra()) {
+            workerPermits.release();
+            return false;
+        }
+        return true;
+    }
+
+    private void releaseWorker() {
+        dbConcurrencyGate.ifPresent(DbConcurrencyGate::releaseExtra);
+        workerPermits.release();
+    }
+
+    private List<OrderItemQueryDto> findOrderItemsInWorker(List<Long> orderIds) {
+        EntityManager workerEm = emf.createEntityManager();
+        try {
+            return findOrderItems(workerEm, orderIds);
+        } finally {
+            workerEm.close();
+            releaseWorker();
+        }
+    }
+
+    private static List<OrderItemQueryDto> findOrderItems(EntityManager em, List<Long> orderIds) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id,i.name,oi.orderPrice, oi.count)" +
+                                "from OrderItem oi " +
+                                "join oi.item i " +
+                                "where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    private static Map<Long, List<OrderItemQueryDto>> groupByOrderId(List<OrderItemQueryDto> orderItems) {
+        return orderItems.stream().collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+    }
+
+    private List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        return chunks;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
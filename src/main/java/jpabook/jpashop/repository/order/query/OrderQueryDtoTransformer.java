@@ -0,0 +1,56 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.hibernate.query.ResultListTransformer;
+import org.hibernate.query.TupleTransformer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * v6 flat row -> OrderQueryDto 한번에 조립
+ *
+ * groupingBy로 묶으면 row마다 키용 OrderQueryDto + OrderFlatDto + 맵 엔트리가 생기고, 그룹마다 OrderQueryDto를 또 만든다.
+ * row가 order_id 순으로 오면 id가 바뀔 때만 새 주문을 만들고 나머지 row는 주문상품만 붙이면 된다.(키, 맵 없음)
+ * 결과 순서는 쿼리 정렬(order_id) 그대로.
+ *
+ * 쿼리마다 새로 만들어서 쓴다.(직전 주문을 들고 있는 상태가 있음)
+ * select 컬럼 순서 : o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count
+ * 주문상품을 left join하면 주문상품 없는 주문은 주문상품 컬럼이 null인 row 하나로 온다. 그 주문은 orderItems가 빈 채로 나온다.
+ */
+public class OrderQueryDtoTransformer implements TupleTransformer<OrderQueryDto>, ResultListTransformer<OrderQueryDto> {
+
+    private OrderQueryDto current;
+
+    @Override
+    public OrderQueryDto transformTuple(Object[] tuple, String[] aliases) {
+        Long orderId = (Long) tuple[0];
+        if (current == null || !current.getOrderId().equals(orderId)) {
+            current = new OrderQueryDto(orderId, (String) tuple[1], (LocalDateTime) tuple[2],
+                    (OrderStatus) tuple[3], (Address) tuple[4], new ArrayList<>());
+        }
+        if (tuple[7] != null) {
+            current.getOrderItems().add(
+                    new OrderItemQueryDto(orderId, (String) tuple[5], (Integer) tuple[6], (Integer) tuple[7]));
+        }
+        return current;
+    }
+
+    /**
+     * row마다 그 row의 주문이 들어있다.(같은 주문이 연달아 나옴) 연달아 나온 같은 주문은 하나만 남긴다.
+     */
+    @Override
+    public List<OrderQueryDto> transformList(List<OrderQueryDto> rows) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderQueryDto last = null;
+        for (OrderQueryDto order : rows) {
+            if (order != last) {
+                result.add(order);
+                last = order;
+            }
+        }
+        return result;
+    }
+}
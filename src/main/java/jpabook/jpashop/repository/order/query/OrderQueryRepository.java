@@ -1,18 +1,23 @@
 package jpabook.jpashop.repository.order.query;
 
 import jakarta.persistence.EntityManager;
+import jpabook.jpashop.repository.IdThenFetchPager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final OrderItemChunkLoader orderItemChunkLoader;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> result = findOrders();
@@ -26,6 +31,15 @@ public class OrderQueryRepository {
     }
 
 
+    /**
+     * v4 페이징 버전 (컬렉션은 여전히 주문마다 1번, N+1)
+     */
+    public List<OrderQueryDto> findOrderQueryDtos(int offset, int limit) {
+        List<OrderQueryDto> result = findOrders(offset, limit);
+        result.forEach(o -> o.setOrderItems(findOrderItems(o.getOrderId())));
+        return result;
+    }
+
     /**
      * 쿼리는 루트 1번, 컬렉션 1번
      */
@@ -58,7 +72,22 @@ public class OrderQueryRepository {
 
     }
 
+    /**
+     * v5 페이징 버전. 페이징은 ToOne만 조인한 루트 쿼리에 걸고, 컬렉션은 똑같이 in 쿼리 한방.
+     */
+    public List<OrderQueryDto> findAllByDto_optimization(int offset, int limit) {
+        List<OrderQueryDto> result = findOrders(offset, limit);
+
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return result;
+    }
+
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        // 주문이 아주 많으면 in 목록을 잘라서 병렬로 조회
+        if (orderItemChunkLoader.needsChunking(orderIds)) {
+            return orderItemChunkLoader.findOrderItemMap(orderIds);
+        }
         // in 쿼리를 사용해서 한방쿼리로 싹 긁어옴
         List<OrderItemQueryDto> orderItems = em.createQuery(
                         "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id,i.name,oi.orderPrice, oi.count)" +
@@ -100,6 +129,18 @@ public class OrderQueryRepository {
                 .getResultList();
     }
 
+    private List<OrderQueryDto> findOrders(int offset, int limit) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name,o.orderDate,o.status, d.address) " +
+                                "from Order o " +
+                                "join o.member m " +
+                                "join o.delivery d " +
+                                "order by o.id", OrderQueryDto.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     public List<OrderFlatDto> findAllByDto_flat() {
         return em.createQuery(
                 "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count) " +
@@ -110,4 +151,52 @@ public class OrderQueryRepository {
                         "join oi.item i", OrderFlatDto.class)
                 .getResultList();
     }
+
+    /**
+     * v6 페이징 버전 : 주문 id afterOrderId 다음부터 limit개 주문의 row (쿼리는 여전히 1번)
+     * row 단위로 limit을 걸면 주문이 중간에 잘려서, 주문 id를 서브쿼리에서 limit 하고 그 주문들의 row를 다 가져온다.
+     * row는 OrderFlatDto로 만들지 않고 OrderQueryDtoTransformer가 order_id 순으로 한번 훑으면서 바로 조립한다.
+     * (row는 컬럼 여러개짜리 Object[], transformer를 걸면 결과 타입이 OrderQueryDto로 바뀐다)
+     * 주문상품은 left join이라 서브쿼리가 뽑은 주문이 다 나온다. 다음 커서는 이 주문 id 페이지로 정하고(Page.keys)
+     * 주문상품 없는 주문은 다른 버전처럼 content에서만 뺀다. 그래야 페이지 끝 주문에 상품이 없어도 페이징이 일찍 안 끝난다.
+     */
+    public IdThenFetchPager.Page<OrderQueryDto, Long> findAllByDto_flat(Long afterOrderId, int limit) {
+        OrderQueryDtoTransformer transformer = new OrderQueryDtoTransformer();
+        List<OrderQueryDto> orders = em.unwrap(Session.class).createQuery(
+                "select o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count " + // 컬럼 순서는 transformer와 맞춘다.
+                        "from Order o " +
+                        "join o.member m " +
+                        "join o.delivery d " +
+                        "left join o.orderItems oi " +
+                        "left join oi.item i " +
+                        "where o.id in (select o2.id from Order o2 where o2.id > :afterOrderId order by o2.id limit :limit) " +
+                        "order by o.id, oi.id", Object[].class)
+                .setParameter("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .setParameter("limit", limit)
+                .setTupleTransformer(transformer)
+                .setResultListTransformer(transformer)
+                .getResultList();
+        return new IdThenFetchPager.Page<>(
+                orders.stream().filter(o -> !o.getOrderItems().isEmpty()).toList(),
+                orders.stream().map(OrderQueryDto::getOrderId).toList());
+    }
+
+    /**
+     * v6 쿼리를 리스트로 다 올리지 않고 커서로 한 row씩 흘려보낸다.
+     * 같은 주문의 row가 붙어서 나오도록 order_id로 정렬한다.
+     * 반드시 트랜잭션 안에서 쓰고 다 쓰면 close 해줘야 한다.(try-with-resources)
+     */
+    public Stream<OrderFlatDto> streamAllByDto_flat(int fetchSize) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count) " +
+                        "from Order o " +
+                        "join o.member m " +
+                        "join o.delivery d " +
+                        "join o.orderItems oi " +
+                        "join oi.item i " +
+                        "order by o.id, oi.id", OrderFlatDto.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream(); // 하이버네이트가 forward-only ScrollableResults로 읽는다.
+    }
 }
@@ -30,4 +30,16 @@ public class OrderSimpleQueryRepository {
                 .getResultList();
     }
 
+    public List<OrderSimpleQueryDto> findOrderDtos(int offset, int limit) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address) " +
+                                "from Order o " +
+                                "join o.member m " +
+                                "join o.delivery d " +
+                                "order by o.id", OrderSimpleQueryDto.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
 }
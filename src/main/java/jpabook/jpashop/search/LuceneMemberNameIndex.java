@@ -0,0 +1,249 @@
+package jpabook.jpashop.search;
+
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lucene(메모리 디렉토리) 회원 이름 인덱스
+ *
+ * 이름을 2글자씩(bigram) 잘라서 위치와 같이 색인하고, 검색어의 bigram들을 연속된 위치로 찾는다.(PhraseQuery)
+ * 그래서 결과가 like '%검색어%'와 똑같다.(대소문자 구분도 같음)
+ * 1글자 검색어는 bigram으로 못 찾아서 like로 넘긴다.
+ *
+ * 메모리에만 있어서 기동할 때마다 DB에서 다시 만든다.(MemberNameIndexListener, 백그라운드)
+ * 다시 만들 때는 새 세대(Generation)에 따로 만들고 다 되면 바꿔 끼운다. 그동안 검색은 이전 세대로 계속 답한다.
+ * 첫 세대가 만들어지기 전에는 검색에 안쓴다.(like)
+ *
+ * 인스턴스마다 자기 인덱스를 따로 들고 있고, index()는 그 인스턴스에서 커밋된 변경만 받는다.
+ * 서버를 여러대 띄우면 다른 서버에서 가입/이름변경한 회원은 다음 rebuild 전까지 여기 검색에 안 걸린다.
+ * (jpashop.member-search.rebuild-interval 마다 다시 만든다, MemberNameIndexListener)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.member-search.enabled", havingValue = "true", matchIfMissing = true)
+public class LuceneMemberNameIndex implements MemberNameIndex {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final int GRAM = 2;
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+
+    private final MemberRepository memberRepository;
+    private final Analyzer analyzer = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            return new TokenStreamComponents(new NGramTokenizer(GRAM, GRAM));
+        }
+    };
+    private final Object rebuildLock = new Object(); // rebuild는 한번에 하나만
+
+    private volatile Generation current; // null이면 아직 첫 세대 전
+    private Map<Long, String> changedWhileRebuilding; // this로 동기화, rebuild 도는 중에만 있다
+
+    public LuceneMemberNameIndex(MemberRepository memberRepository) {
+        this.memberRepository = memberRepository;
+    }
+
+    @Override
+    public void index(Long memberId, String name) {
+        try {
+            synchronized (this) {
+                if (changedWhileRebuilding != null) {
+                    changedWhileRebuilding.put(memberId, name); // 새 세대에도 마지막에 다시 넣는다
+                }
+                if (current != null) {
+                    current.put(memberId, name);
+                    current.searcherManager.maybeRefreshBlocking(); // 가입 직후 검색에 바로 보이게
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 회원 id 순으로 REBUILD_BATCH_SIZE씩 읽어서 새 세대를 만들고 바꿔 끼운다.
+     * 도는 중에 들어온 index()는 지금 세대에 바로 넣고, 따로 모아뒀다가 바꿔 끼우기 직전에 새 세대에 덮어쓴다.
+     * (DB를 읽은 시점보다 나중에 커밋된 이름이 예전 이름에 덮이지 않게)
+     * 실패하면 지금 세대를 그대로 쓴다.
+     */
+    @Override
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.nanoTime();
+            Generation next = null;
+            Generation old;
+            long count = 0;
+            try {
+                next = new Generation(analyzer);
+                synchronized (this) {
+                    changedWhileRebuilding = new HashMap<>();
+                }
+                Long lastId = 0L;
+                List<MemberNameEntry> batch;
+                while (!(batch = memberRepository.findNameEntries(lastId, REBUILD_BATCH_SIZE)).isEmpty()) {
+                    for (MemberNameEntry entry : batch) {
+                        next.put(entry.memberId(), entry.name());
+                    }
+                    count += batch.size();
+                    lastId = batch.get(batch.size() - 1).memberId();
+                }
+                synchronized (this) {
+                    for (Map.Entry<Long, String> changed : changedWhileRebuilding.entrySet()) {
+                        next.put(changed.getKey(), changed.getValue());
+                    }
+                    next.writer.commit();
+                    next.searcherManager.maybeRefreshBlocking();
+                    old = current;
+                    current = next;
+                }
+            } catch (IOException e) {
+                closeQuietly(next);
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                closeQuietly(next);
+                throw e;
+            } finally {
+                synchronized (this) {
+                    changedWhileRebuilding = null;
+                }
+            }
+            if (old != null) {
+                old.retire();
+            }
+            log.info("회원 이름 인덱스 생성 {}건, {}ms", count, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @Override
+    public Optional<List<Long>> findMemberIds(String keyword, int limit) {
+        int[] codePoints = keyword.codePoints().toArray();
+        Generation generation = current;
+        if (generation == null || codePoints.length < GRAM) {
+            return Optional.empty();
+        }
+        PhraseQuery.Builder phrase = new PhraseQuery.Builder();
+        for (int i = 0; i + GRAM <= codePoints.length; i++) {
+            phrase.add(new Term(NAME, new String(codePoints, i, GRAM)), i);
+        }
+
+        try {
+            IndexSearcher searcher = generation.searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(new ConstantScoreQuery(phrase.build()), limit + 1);
+                if (top.scoreDocs.length > limit) {
+                    return Optional.empty(); // 너무 많이 걸리면 in (...)보다 like가 낫다.
+                }
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> memberIds = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    memberIds.add(Long.valueOf(storedFields.document(scoreDoc.doc).get(ID)));
+                }
+                return Optional.of(memberIds);
+            } finally {
+                generation.searcherManager.release(searcher);
+            }
+        } catch (AlreadyClosedException e) {
+            return Optional.empty(); // 그 사이에 새 세대로 바뀌었다. 이번 한번은 like로
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Document document(Long memberId, String name) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, memberId.toString(), Field.Store.YES));
+        if (name != null) {
+            doc.add(new TextField(NAME, name, Field.Store.NO));
+        }
+        return doc;
+    }
+
+    private static void closeQuietly(Generation generation) {
+        if (generation == null) {
+            return;
+        }
+        try {
+            generation.close();
+        } catch (IOException | RuntimeException e) {
+            log.warn("회원 이름 인덱스 정리 실패", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (this) {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * 인덱스 한 벌 (메모리 디렉토리 + writer + searcher)
+     */
+    private static final class Generation {
+
+        private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
+        private final IndexWriter writer;
+        private final SearcherManager searcherManager;
+
+        private Generation(Analyzer analyzer) throws IOException {
+            this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+            this.searcherManager = new SearcherManager(writer, null);
+        }
+
+        private void put(Long memberId, String name) throws IOException {
+            writer.updateDocument(new Term(ID, memberId.toString()), document(memberId, name));
+        }
+
+        /**
+         * 새 세대로 바뀐 뒤. 이미 acquire한 검색은 끝까지 돌 수 있게 디렉토리는 안 닫는다.(GC가 정리)
+         */
+        private void retire() {
+            try {
+                searcherManager.close();
+                writer.close();
+            } catch (IOException | RuntimeException e) {
+                log.warn("이전 회원 이름 인덱스 정리 실패", e);
+            }
+        }
+
+        private void close() throws IOException {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        }
+    }
+}
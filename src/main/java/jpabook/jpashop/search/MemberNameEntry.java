@@ -0,0 +1,7 @@
+package jpabook.jpashop.search;
+
+/**
+ * 재색인용 회원 (id, 이름)
+ */
+public record MemberNameEntry(Long memberId, String name) {
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.search;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 회원 이름 부분일치 검색 인덱스
+ * 주문 검색(OrderRepository.findAllByCriteria)에서 member.name like '%이름%' 대신
+ * 먼저 여기서 회원 id를 찾고 orders.member_id in (...)으로 조회한다.
+ *
+ * 구현체를 바꿔 끼울 수 있게 인터페이스로 둔다.(기본 LuceneMemberNameIndex)
+ */
+public interface MemberNameIndex {
+
+    /**
+     * 회원 추가 또는 이름 변경 (커밋된 것만 넣는다)
+     */
+    void index(Long memberId, String name);
+
+    /**
+     * DB의 회원 전체로 다시 만든다. 도는 동안에도 index()/findMemberIds()는 쓸 수 있다.
+     */
+    void rebuild();
+
+    /**
+     * 이름에 keyword가 포함된 회원 id
+     * 인덱스로 답할 수 없으면(준비 안됨, 검색어가 너무 짧음, 결과가 limit보다 많음) empty -> 호출한 쪽에서 like로 찾는다.
+     */
+    Optional<List<Long>> findMemberIds(String keyword, int limit);
+}
@@ -0,0 +1,69 @@
+package jpabook.jpashop.search;
+
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.service.MemberChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 이름 인덱스 동기화
+ * - 기동 후 DB 전체로 한번 만든다. 회원 테이블 전체를 읽으니 기동을 막지 않게 백그라운드 스레드에서
+ *   (다 만들어지기 전까지 주문 검색은 like로 간다)
+ * - 가입/이름변경은 커밋된 뒤에(AFTER_COMMIT) 반영한다. 롤백된 이름이 인덱스에 남지 않게
+ * - 그 뒤로 rebuild-interval마다 다시 만든다.(0이면 안함)
+ *   이벤트는 이 서버에서 커밋된 것만 오니까, 서버를 여러대 띄우면 다른 서버의 변경은 이걸로 따라잡는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.member-search.enabled", havingValue = "true", matchIfMissing = true)
+public class MemberNameIndexListener {
+
+    private final MemberNameIndex memberNameIndex;
+    private final Duration rebuildInterval;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("member-name-index-"));
+
+    public MemberNameIndexListener(MemberNameIndex memberNameIndex,
+                                   @Value("${jpashop.member-search.rebuild-interval:10m}") Duration rebuildInterval) {
+        this.memberNameIndex = memberNameIndex;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        scheduler.execute(this::rebuild);
+        if (!rebuildInterval.isZero() && !rebuildInterval.isNegative()) {
+            scheduler.scheduleWithFixedDelay(this::rebuild,
+                    rebuildInterval.toMillis(), rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        memberNameIndex.index(event.getMemberId(), event.getName());
+    }
+
+    private void rebuild() {
+        try {
+            memberNameIndex.rebuild();
+        } catch (Exception e) {
+            log.warn("회원 이름 인덱스 생성 실패, 이전 인덱스(없으면 like)로 계속 검색한다", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
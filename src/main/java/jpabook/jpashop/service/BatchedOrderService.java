@@ -0,0 +1,103 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.concurrency.BatchLoader;
+import jpabook.jpashop.exception.DbBusyException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemSnapshot;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * 주문 - 동시 요청들의 회원/상품 조회를 모아서 (jpashop.order-lookup-batch.enabled=true 일 때만)
+ *
+ * order()는 요청마다 회원 em.find, 상품 em.find를 따로 해서 주문이 몰리면 같은 인기상품을 요청 수만큼 읽는다.
+ * 여기서는 window(1~2ms) 동안 들어온 요청들의 회원 id, 상품 id를 모아서 in 쿼리 한번씩으로 읽고(BatchLoader) 나눠준다.
+ * 요청 사이에 엔티티는 나눠 쓸 수 없어서(영속성 컨텍스트가 요청마다 다름) 주문에 필요한 값만 불변 스냅샷으로 읽고,
+ * 주문 트랜잭션에서는 회원/상품을 조회 없이 참조(getReference)로만 건다.(OrderService.orderWithSnapshots)
+ *
+ * 트랜잭션이 없는 빈이다. 조회를 기다리는 동안 커넥션을 쥐고 있지 않게 주문 트랜잭션 전에 모은다.
+ * 조회는 timeout까지만 기다린다. 시간 초과나 조회 스레드가 배치를 안 받으면(종료 중) DbBusyException(503)
+ */
+@Service
+@ConditionalOnProperty(name = "jpashop.order-lookup-batch.enabled", havingValue = "true")
+public class BatchedOrderService {
+
+    private final OrderService orderService;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService loaders;
+    private final BatchLoader<Long, MemberSnapshot> members;
+    private final BatchLoader<Long, ItemSnapshot> items;
+    private final Duration timeout;
+
+    public BatchedOrderService(OrderService orderService,
+                               MemberRepository memberRepository,
+                               ItemRepository itemRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${jpashop.order-lookup-batch.window:2ms}") Duration window,
+                               @Value("${jpashop.order-lookup-batch.max-batch-size:100}") int maxBatchSize,
+                               @Value("${jpashop.order-lookup-batch.threads:2}") int threads,
+                               @Value("${jpashop.order-lookup-batch.timeout:3s}") Duration timeout) {
+        this.orderService = orderService;
+        this.timeout = timeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("order-lookup-timer-"));
+        this.loaders = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("order-lookup-"));
+        this.members = new BatchLoader<>("member",
+                ids -> memberRepository.findSnapshots(ids).stream().collect(toMap(MemberSnapshot::id, m -> m)),
+                window, maxBatchSize, scheduler, loaders, meterRegistry);
+        this.items = new BatchLoader<>("item",
+                ids -> itemRepository.findSnapshots(ids).stream().collect(toMap(ItemSnapshot::id, i -> i)),
+                window, maxBatchSize, scheduler, loaders, meterRegistry);
+    }
+
+    public Long order(Long memberId, Long itemId, int count) {
+        //회원, 상품 조회는 같이 기다린다
+        //future는 같은 키 요청끼리 같이 쓰니 시간 제한은 allOf로 만든 새 future에만 건다
+        CompletableFuture<MemberSnapshot> member = members.load(memberId);
+        CompletableFuture<ItemSnapshot> item = items.load(itemId);
+        join(CompletableFuture.allOf(member, item).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS));
+        MemberSnapshot foundMember = member.join();
+        ItemSnapshot foundItem = item.join();
+        if (foundMember == null || foundItem == null) {
+            throw new IllegalArgumentException("존재하지 않는 회원 또는 상품입니다. memberId=" + memberId + ", itemId=" + itemId);
+        }
+        return orderService.orderWithSnapshots(foundMember, foundItem, count);
+    }
+
+    private static void join(CompletableFuture<Void> lookups) {
+        try {
+            lookups.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException || e.getCause() instanceof RejectedExecutionException) {
+                throw new DbBusyException("주문 회원/상품 조회를 기다리다 실패했습니다.", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        loaders.shutdown();
+    }
+}
@@ -0,0 +1,44 @@
+package jpabook.jpashop.service;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량 주문 1건 (회원 1명, 상품 여러개)
+ */
+@Getter @Setter
+@NoArgsConstructor
+public class BulkOrderDto {
+
+    @NotNull
+    private Long memberId;
+    @NotEmpty @Valid
+    private List<Line> items = new ArrayList<>();
+
+    public BulkOrderDto(Long memberId, List<Line> items) {
+        this.memberId = memberId;
+        this.items = items;
+    }
+
+    @Getter @Setter
+    @NoArgsConstructor
+    public static class Line {
+        @NotNull
+        private Long itemId;
+        @Min(1)
+        private int count;
+
+        public Line(Long itemId, int count) {
+            this.itemId = itemId;
+            this.count = count;
+        }
+    }
+}
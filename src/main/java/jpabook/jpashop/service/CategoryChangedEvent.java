@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 카테고리가 추가되거나 트리 모양이 바뀌면 CategoryService가 발행하는 이벤트 (카테고리 트리 캐시 무효화)
+ */
+@Getter
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+
+    public CategoryChangedEvent(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+}
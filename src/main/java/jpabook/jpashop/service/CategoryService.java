@@ -0,0 +1,64 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.service.query.CategoryNode;
+import jpabook.jpashop.service.query.CategoryTreeCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 카테고리 추가, parentId가 null이면 루트
+     */
+    @Transactional
+    public Long addCategory(String name, Long parentId){
+        Category category = new Category();
+        category.setName(name);
+        if (parentId != null) {
+            categoryRepository.findOne(parentId).addChildCategory(category);
+        }
+        categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getId()));
+        return category.getId();
+    }
+
+    @Transactional
+    public void addItem(Long categoryId, Long itemId){
+        Category category = categoryRepository.findOne(categoryId);
+        category.getItems().add(itemRepository.findOne(itemId));
+    }
+
+    /**
+     * 서브트리 (CTE 쿼리 1번, 그 다음부터는 캐시)
+     */
+    public Optional<CategoryNode> findTree(Long categoryId){
+        return categoryTreeCache.get(categoryId);
+    }
+
+    /**
+     * 카테고리 + 하위 카테고리 전체에 걸린 상품
+     * 하위 카테고리 id는 캐시된 트리에서, 상품은 category_item 조인 쿼리 1번
+     */
+    public List<Item> findItemsIncludingDescendants(Long categoryId, int offset, int limit){
+        return findTree(categoryId)
+                .map(tree -> categoryRepository.findItems(tree.descendantIds(), offset, limit))
+                .orElse(List.of());
+    }
+}
@@ -15,6 +15,7 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final ItemStockService itemStockService;
 
     @Transactional
     public void saveItem(Item item){
@@ -32,10 +33,12 @@ public class ItemService {
         처럼 의미있는 메소드를 엔티티내에 만들어서 역추척 할 수 있도록 해야함.(setter쓰지말자)
          */
 
+        // 재고 먼저 - item 행을 잠그고 다시 읽는다.(refresh라 setPrice/setName 뒤에 하면 날아간다) 샤딩된 상품이면 샤드에 다시 나눈다.
+        itemStockService.changeStock(itemId, stockQUantity);
+
         // 변경된 애로 바꿔준다.(이렇게 하면 JPA가 변경감지 수행)
         findItem.setPrice(price);
         findItem.setName(name);
-        findItem.setStockQuantity(stockQUantity);
     }
 
     public List<Item> findItems(){
@@ -0,0 +1,217 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockShardRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 재고 차감/원복 (인기상품 재고 샤딩)
+ *
+ * 한정판매처럼 상품 하나에 주문이 몰리면 주문마다 item 행 락을 잡고 커밋까지 줄을 선다.
+ * 샤딩된 상품은 재고를 item_stock_shard 행 n개에 나눠 두고 랜덤 샤드에서 빼서 락 경합을 n개로 흩는다.
+ * - 전체 재고는 샤드 합계 (item.stockQuantity는 스냅샷)
+ * - 랜덤 샤드가 비었으면 몇 번 더 찍어보고, 그래도 안되면 샤드를 다 잠그고 여러 샤드에서 나눠 뺀다.
+ * - 한쪽 샤드만 바닥나면 계속 헛찍으니 StockShardRebalancer가 주기적으로 고르게 맞춘다.
+ * 샤딩 안 된 상품은 예전처럼 item 행 조건부 UPDATE.
+ *
+ * 샤딩 전환(shard/unshard)은 item 행을 잠그고 하지만, 엔티티로 재고를 빼는 order()와는 경합할 수 있어서 주문이 몰리기 전에 한다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class ItemStockService {
+
+    public static final int MAX_SHARDS = 64;
+
+    //랜덤으로 찍어볼 샤드 수, 넘으면 전체 잠그고 나눠서 뺀다.
+    private static final int RANDOM_PROBES = 3;
+
+    private final ItemRepository itemRepository;
+    private final ItemStockShardRepository itemStockShardRepository;
+
+    /**
+     * 재고 차감 (DB 조건부 UPDATE, 영속성 컨텍스트의 item.stockQuantity는 안 바뀐다)
+     * @return 차감 성공 여부, 재고가 모자라면 false
+     */
+    @Transactional
+    public boolean decrease(Item item, int quantity){
+        return decrease(item.getId(), item.getStockShardCount(), quantity);
+    }
+
+    /**
+     * 엔티티 없이 id와 샤드 수(ItemSnapshot)로
+     */
+    @Transactional
+    public boolean decrease(Long itemId, int shards, int quantity){
+        if (shards == 0) {
+            return itemRepository.decreaseStock(itemId, quantity);
+        }
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < Math.min(shards, RANDOM_PROBES); i++) {
+            if (itemStockShardRepository.decrease(itemId, (start + i) % shards, quantity)) {
+                return true;
+            }
+        }
+        //품절이면 락 안잡고 끝
+        if (itemStockShardRepository.sumQuantity(itemId) < quantity) {
+            return false;
+        }
+        return decreaseAcrossShards(itemId, quantity);
+    }
+
+    private boolean decreaseAcrossShards(Long itemId, int quantity){
+        List<ItemStockShard> shards = itemStockShardRepository.findAllForUpdate(itemId);
+        int total = shards.stream().mapToInt(ItemStockShard::getQuantity).sum();
+        if (total < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        for (ItemStockShard shard : shards) {
+            int taken = Math.min(shard.getQuantity(), remaining);
+            shard.changeQuantity(shard.getQuantity() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 주문 취소 재고 원복 - 샤딩된 상품은 랜덤 샤드로 돌려준다.(샤딩 안 된 상품은 OrderItem.cancel에서 엔티티로)
+     * item의 샤드 수는 읽은 시점 값이다. 그 사이 shard/changeStock/unshard가 샤드를 다시 만들었으면 그 샤드가 없어서
+     * UPDATE가 0건이다. 그때는 잠그고 지금 상태로 다시 봐서 남은 샤드나 상품 재고에 돌려준다.
+     */
+    @Transactional
+    public void increase(Item item, int quantity){
+        int shards = item.getStockShardCount();
+        if (shards > 0 && itemStockShardRepository.increase(item.getId(), ThreadLocalRandom.current().nextInt(shards), quantity)) {
+            return;
+        }
+        increaseLocked(item.getId(), quantity);
+    }
+
+    //shard()/rebalance()/changeStock()과 같은 순서로 잠근다 (item 행 -> 샤드)
+    private void increaseLocked(Long itemId, int quantity){
+        Item item = itemRepository.refreshForUpdate(itemId);
+        List<ItemStockShard> shards = itemStockShardRepository.findAllForUpdate(itemId);
+        if (shards.isEmpty()) {
+            item.addStock(quantity); // 샤딩이 꺼졌음
+            return;
+        }
+        ItemStockShard shard = shards.get(0);
+        shard.changeQuantity(shard.getQuantity() + quantity);
+    }
+
+    /**
+     * 전체 재고
+     */
+    public int getStock(Item item){
+        return item.isStockSharded() ? itemStockShardRepository.sumQuantity(item.getId()) : item.getStockQuantity();
+    }
+
+    public List<ItemStockShard> findShards(Long itemId){
+        return itemStockShardRepository.findAll(itemId);
+    }
+
+    /**
+     * 재고 샤딩 켜기 (이미 샤딩돼 있으면 샤드 수만 바꾼다) - 지금 재고를 shardCount개로 고르게 나눈다.
+     */
+    @Transactional
+    public void shard(Long itemId, int shardCount){
+        if (shardCount < 1 || shardCount > MAX_SHARDS) {
+            throw new IllegalArgumentException("샤드 수는 1 ~ " + MAX_SHARDS + " 입니다. shardCount=" + shardCount);
+        }
+        Item item = itemRepository.findOneForUpdate(itemId);
+        int total = lockAndRemoveShards(item);
+        item.setStockShardCount(shardCount);
+        createShards(item, total);
+    }
+
+    /**
+     * 재고 샤딩 끄기 - 샤드 합계를 item.stockQuantity로 되돌린다.
+     */
+    @Transactional
+    public void unshard(Long itemId){
+        Item item = itemRepository.findOneForUpdate(itemId);
+        int total = lockAndRemoveShards(item);
+        item.setStockShardCount(0);
+        item.setStockQuantity(total);
+    }
+
+    /**
+     * 재고 수정 (상품 수정 화면) - 샤딩된 상품은 새 재고를 샤드에 다시 나눈다.
+     * item 행을 잠그고 DB 값으로 다시 읽는다.(읽어둔 샤드 수는 그 사이 shard/unshard로 바뀌었을 수 있다)
+     * refresh라 같은 트랜잭션에서 item에 바꿔둔 값은 날아가니 다른 변경보다 먼저 부른다.
+     */
+    @Transactional
+    public void changeStock(Long itemId, int stockQuantity){
+        Item item = itemRepository.refreshForUpdate(itemId);
+        if (!item.isStockSharded()) {
+            item.setStockQuantity(stockQuantity);
+            return;
+        }
+        lockAndRemoveShards(item);
+        createShards(item, stockQuantity);
+    }
+
+    /**
+     * 리밸런스 - 샤드 재고를 고르게 다시 나눈다. 이미 고르면(차이 1 이하) 아무것도 안한다.
+     * 샤드를 잠그는 동안 그 상품 주문이 잠깐 멈추니 상품마다 트랜잭션을 짧게 따로 간다.
+     * 스냅샷을 쓰느라 item 행도 잠그니 shard()/increaseLocked()와 같은 순서로 (item 행 -> 샤드), 아니면 서로 데드락
+     * @return 옮겼는지 여부
+     */
+    @Transactional
+    public boolean rebalance(Long itemId){
+        Item item = itemRepository.findOneForUpdate(itemId);
+        if (item == null) {
+            return false;
+        }
+        List<ItemStockShard> shards = itemStockShardRepository.findAllForUpdate(itemId);
+        if (shards.isEmpty()) {
+            return false;
+        }
+        int total = shards.stream().mapToInt(ItemStockShard::getQuantity).sum();
+        int min = shards.stream().mapToInt(ItemStockShard::getQuantity).min().getAsInt();
+        int max = shards.stream().mapToInt(ItemStockShard::getQuantity).max().getAsInt();
+        item.setStockQuantity(total); // 화면용 스냅샷
+        if (max - min <= 1) {
+            return false;
+        }
+        for (ItemStockShard shard : shards) {
+            shard.changeQuantity(evenShare(total, shards.size(), shard.getShardNo()));
+        }
+        return true;
+    }
+
+    private int lockAndRemoveShards(Item item){
+        if (!item.isStockSharded()) {
+            return item.getStockQuantity();
+        }
+        int total = itemStockShardRepository.findAllForUpdate(item.getId()).stream()
+                .mapToInt(ItemStockShard::getQuantity)
+                .sum();
+        itemStockShardRepository.deleteAll(item.getId());
+        return total;
+    }
+
+    private void createShards(Item item, int total){
+        int shardCount = item.getStockShardCount();
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            itemStockShardRepository.save(ItemStockShard.create(item, shardNo, evenShare(total, shardCount, shardNo)));
+        }
+        item.setStockQuantity(total); // 화면용 스냅샷
+    }
+
+    //나머지는 앞 샤드부터 1개씩
+    private static int evenShare(int total, int shardCount, int shardNo){
+        return total / shardCount + (shardNo < total % shardCount ? 1 : 0);
+    }
+}
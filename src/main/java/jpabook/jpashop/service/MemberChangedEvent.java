@@ -0,0 +1,18 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 회원 가입/이름 변경 시 MemberService가 발행하는 이벤트 (회원 이름 검색 인덱스, 주문 요약 회원 이름 갱신용)
+ */
+@Getter
+public class MemberChangedEvent {
+
+    private final Long memberId;
+    private final String name;
+
+    public MemberChangedEvent(Long memberId, String name) {
+        this.memberId = memberId;
+        this.name = name;
+    }
+}
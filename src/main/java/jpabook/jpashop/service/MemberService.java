@@ -1,9 +1,11 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.FetchPlan;
 import jpabook.jpashop.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,12 +17,14 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     //회원 가입
     @Transactional // 디폴트가 읽기전용아님(공통보다 우선적용됨)
     public Long join(Member member){
         validateDuplicateMember(member); // 중복 회원 검증
         memberRepository.save(member);
+        eventPublisher.publishEvent(new MemberChangedEvent(member.getId(), member.getName()));
         return member.getId(); // em.persist하면 영속성 컨텍스트에서 PK를 들고 있음(보장됨)
     }
 
@@ -37,6 +41,20 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    //회원 목록 페이징 (id 순)
+    public List<Member> findMembers(Long afterId, int limit){
+        return memberRepository.findPage(afterId, limit);
+    }
+
+    //회원 목록 페이징 + expand (연관관계는 FetchPlan에 있는 것만 같이 읽는다)
+    public List<Member> findMembers(FetchPlan plan, Long afterId, int limit){
+        return memberRepository.findPage(plan, afterId, limit);
+    }
+
+    public long countMembers(){
+        return memberRepository.count();
+    }
+
     public Member findOne(Long memberId){
         return memberRepository.findOne(memberId);
     }
@@ -45,5 +63,6 @@ public class MemberService {
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
         member.setName(name);
+        eventPublisher.publishEvent(new MemberChangedEvent(id, name));
     }
 }
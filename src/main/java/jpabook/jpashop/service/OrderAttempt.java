@@ -0,0 +1,30 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * orderBatch 결과 한 건, 성공이면 orderId 실패면 failure
+ */
+@Getter
+public class OrderAttempt {
+
+    private final Long orderId;
+    private final String failure;
+
+    private OrderAttempt(Long orderId, String failure) {
+        this.orderId = orderId;
+        this.failure = failure;
+    }
+
+    public static OrderAttempt success(Long orderId) {
+        return new OrderAttempt(orderId, null);
+    }
+
+    public static OrderAttempt failure(String failure) {
+        return new OrderAttempt(null, failure);
+    }
+
+    public boolean isSuccess() {
+        return orderId != null;
+    }
+}
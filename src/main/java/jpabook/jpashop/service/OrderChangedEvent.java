@@ -0,0 +1,23 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 주문이 생성/취소되거나 배송상태가 바뀌면 OrderService가 발행하는 이벤트
+ * 주문 조회용 캐시나 읽기 모델이 이걸 보고 갱신한다.
+ */
+@Getter
+public class OrderChangedEvent {
+
+    private final List<Long> orderIds;
+
+    public OrderChangedEvent(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+
+    public static OrderChangedEvent of(Long orderId) {
+        return new OrderChangedEvent(List.of(orderId));
+    }
+}
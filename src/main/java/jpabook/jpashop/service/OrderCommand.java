@@ -0,0 +1,20 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 단건 주문 요청 (회원, 상품, 수량)
+ */
+@Getter
+public class OrderCommand {
+
+    private final Long memberId;
+    private final Long itemId;
+    private final int count;
+
+    public OrderCommand(Long memberId, Long itemId, int count) {
+        this.memberId = memberId;
+        this.itemId = itemId;
+        this.count = count;
+    }
+}
@@ -1,19 +1,30 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemSnapshot;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberSnapshot;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 @Service
 @Transactional(readOnly = true)
@@ -23,6 +34,11 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final ItemStockService itemStockService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    //jdbc batch_size(100)의 배수로
+    private static final int BULK_CHUNK_SIZE = 500;
 
     /**
      * 주문
@@ -38,15 +54,177 @@ public class OrderService {
         delivery.setAddress(member.getAddress());
 
         //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = createOrderItem(item, count);
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
 
         //주문 저장
         orderRepository.save(order); //orderItem,delivery cascade되어있어서 이거만 save하면 끝
+        eventPublisher.publishEvent(OrderChangedEvent.of(order.getId()));
+        return order.getId();
+    }
+
+    /**
+     * 주문 - 재고 예약 방식
+     * order()는 Item을 읽어서 removeStock으로 빼고 변경감지로 쓰는데, 락도 @Version도 없어서
+     * 인기상품에 주문이 동시에 몰리면 서로 덮어써서 초과판매가 난다.
+     * 여기서는 재고를 조건부 UPDATE로 DB에서 원자적으로 차감한다.
+     * 차감은 맨 마지막에 해서 item 행 락을 잡고 있는 시간을 커밋까지로 최소화한다.
+     */
+    @Transactional
+    public Long orderWithStockReservation(Long memberId, Long itemId, int count){
+        //엔티티 조회
+        Member member = memberRepository.findOne(memberId);
+        Item item = itemRepository.findOne(itemId);
+
+        //배송정보 생성
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        //주문상품, 주문 생성 (재고는 아래에서 DB로 차감)
+        OrderItem orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), count);
+        Order order = Order.createOrder(member, delivery, orderItem);
+        orderRepository.save(order);
+
+        //재고 예약, 0건 수정이면 재고 부족 -> 롤백 (샤딩된 상품은 재고 샤드에서)
+        if (!itemStockService.decrease(item, count)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        eventPublisher.publishEvent(OrderChangedEvent.of(order.getId()));
+        return order.getId();
+    }
+
+    /**
+     * 주문 - 회원/상품을 미리 읽어온 값(BatchedOrderService)으로
+     * 회원/상품은 FK로만 쓰니 조회 없이 참조만 잡는다. 재고는 orderWithStockReservation처럼 조건부 UPDATE로 뺀다.
+     */
+    @Transactional
+    public Long orderWithSnapshots(MemberSnapshot member, ItemSnapshot item, int count){
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.address());
+
+        OrderItem orderItem = OrderItem.createReservedOrderItem(itemRepository.getReference(item.id()), item.price(), count);
+        Order order = Order.createOrder(memberRepository.getReference(member.id()), delivery, orderItem);
+        orderRepository.save(order);
+
+        if (!itemStockService.decrease(item.id(), item.stockShardCount(), count)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        eventPublisher.publishEvent(OrderChangedEvent.of(order.getId()));
         return order.getId();
     }
 
+    /**
+     * 대량 주문
+     * 주문마다 트랜잭션 하나씩 order()를 부르면 insert마다 왕복이 생긴다.
+     * 회원/상품은 청크마다 in 쿼리로 한번에 읽고, 주문은 jdbc batch insert로 모아서 보낸다.
+     * 청크마다 flush + clear해서 영속성 컨텍스트가 계속 커지지 않게 한다.
+     * id는 시퀀스 pooled 할당(allocationSize 50)이라 insert마다 시퀀스를 조회하지 않는다.
+     */
+    @Transactional
+    public List<Long> bulkOrder(List<BulkOrderDto> requests){
+        List<Long> orderIds = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += BULK_CHUNK_SIZE) {
+            List<BulkOrderDto> chunk = requests.subList(from, Math.min(from + BULK_CHUNK_SIZE, requests.size()));
+            //clear하면 준영속이 되니까 청크마다 다시 읽는다.
+            Map<Long, Member> members = memberRepository.findAllById(memberIds(chunk)).stream()
+                    .collect(toMap(Member::getId, m -> m));
+            Map<Long, Item> items = itemRepository.findAllById(itemIds(chunk)).stream()
+                    .collect(toMap(Item::getId, i -> i));
+
+            for (BulkOrderDto request : chunk) {
+                Member member = members.get(request.getMemberId());
+                if (member == null) {
+                    throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + request.getMemberId());
+                }
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+
+                OrderItem[] orderItems = request.getItems().stream()
+                        .map(line -> {
+                            Item item = items.get(line.getItemId());
+                            if (item == null) {
+                                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + line.getItemId());
+                            }
+                            return createOrderItem(item, line.getCount());
+                        })
+                        .toArray(OrderItem[]::new);
+                Order order = Order.createOrder(member, delivery, orderItems);
+                orderRepository.save(order);
+                orderIds.add(order.getId());
+            }
+            orderRepository.flushAndClear();
+        }
+        eventPublisher.publishEvent(new OrderChangedEvent(orderIds));
+        return orderIds;
+    }
+
+    /**
+     * 단건 주문 여러개를 트랜잭션 하나로 (비동기 주문 큐의 마이크로배치)
+     * bulkOrder와 달리 주문마다 성공/실패가 따로다. 재고 부족이나 없는 회원/상품이면 그 주문만 실패하고 나머지는 커밋된다.
+     * 재고는 orderWithStockReservation처럼 조건부 UPDATE로 차감해서 워커가 여러개여도 초과판매가 안된다.
+     * 주문 하나에 상품 한 줄이라 차감 실패 시 되돌릴 것이 없다.
+     */
+    @Transactional
+    public List<OrderAttempt> orderBatch(List<OrderCommand> commands){
+        Map<Long, Member> members = memberRepository.findAllById(commands.stream().map(OrderCommand::getMemberId).collect(toSet())).stream()
+                .collect(toMap(Member::getId, m -> m));
+        Map<Long, Item> items = itemRepository.findAllById(commands.stream().map(OrderCommand::getItemId).collect(toSet())).stream()
+                .collect(toMap(Item::getId, i -> i));
+
+        List<OrderAttempt> attempts = new ArrayList<>(commands.size());
+        List<Long> orderIds = new ArrayList<>(commands.size());
+        for (OrderCommand command : commands) {
+            Member member = members.get(command.getMemberId());
+            Item item = items.get(command.getItemId());
+            if (member == null || item == null) {
+                attempts.add(OrderAttempt.failure("존재하지 않는 회원 또는 상품입니다."));
+                continue;
+            }
+            if (!itemStockService.decrease(item, command.getCount())) {
+                attempts.add(OrderAttempt.failure("need more stock"));
+                continue;
+            }
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            OrderItem orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), command.getCount());
+            Order order = Order.createOrder(member, delivery, orderItem);
+            orderRepository.save(order);
+            attempts.add(OrderAttempt.success(order.getId()));
+            orderIds.add(order.getId());
+        }
+        if (!orderIds.isEmpty()) {
+            eventPublisher.publishEvent(new OrderChangedEvent(orderIds));
+        }
+        return attempts;
+    }
+
+    /**
+     * 엔티티로 재고를 빼는 주문상품 생성. 샤딩된 인기상품은 item 행 대신 재고 샤드에서 뺀다.
+     */
+    private OrderItem createOrderItem(Item item, int count) {
+        if (item.isStockSharded()) {
+            if (!itemStockService.decrease(item, count)) {
+                throw new NotEnoughStockException("need more stock");
+            }
+            return OrderItem.createReservedOrderItem(item, item.getPrice(), count);
+        }
+        return OrderItem.createOrderItem(item, item.getPrice(), count);
+    }
+
+    private static Set<Long> memberIds(List<BulkOrderDto> requests) {
+        return requests.stream()
+                .map(BulkOrderDto::getMemberId)
+                .collect(toSet());
+    }
+
+    private static Set<Long> itemIds(List<BulkOrderDto> requests) {
+        return requests.stream()
+                .flatMap(r -> r.getItems().stream())
+                .map(BulkOrderDto.Line::getItemId)
+                .collect(toSet());
+    }
+
     /**
      * 주문 취소
      */
@@ -56,6 +234,23 @@ public class OrderService {
         Order order = orderRepository.findOne(orderId);
         // 주문 취소
         order.cancel();
+        // 샤딩된 상품 재고는 엔티티가 아니라 재고 샤드로 돌려준다.(OrderItem.cancel에서 건너뜀)
+        for (OrderItem orderItem : order.getOrderItems()) {
+            if (orderItem.getItem().isStockSharded()) {
+                itemStockService.increase(orderItem.getItem(), orderItem.getCount());
+            }
+        }
+        eventPublisher.publishEvent(OrderChangedEvent.of(orderId));
+    }
+
+    /**
+     * 배송 상태 변경
+     */
+    @Transactional
+    public void changeDeliveryStatus(Long orderId, DeliveryStatus status){
+        Order order = orderRepository.findOne(orderId);
+        order.getDelivery().setStatus(status);
+        eventPublisher.publishEvent(OrderChangedEvent.of(orderId));
     }
 
     // 검색 - 그냥 호출하는거는 컨트롤러에서 리퍼지토리 바로 호출해도됨
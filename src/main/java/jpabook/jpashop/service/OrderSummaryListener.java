@@ -0,0 +1,31 @@
+package jpabook.jpashop.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 주문(회원) 트랜잭션 커밋 직전(BEFORE_COMMIT)에 같은 트랜잭션 안에서 order_summary를 갱신한다.
+ * 주문과 요약이 같이 커밋되거나 같이 롤백돼서 둘이 어긋나지 않는다.
+ * (리스너 메서드에 @Transactional을 붙일 수 없어서 서비스와 분리)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderSummaryListener {
+
+    private final OrderSummaryService orderSummaryService;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderChanged(OrderChangedEvent event) {
+        orderSummaryService.refresh(event.getOrderIds());
+    }
+
+    /**
+     * 요약에 회원 이름이 복사돼 있어서 이름이 바뀌면 그 회원 주문 요약도 같이 바꾼다.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onMemberChanged(MemberChangedEvent event) {
+        orderSummaryService.renameMember(event.getMemberId(), event.getName());
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * order_summary 읽기 모델 관리
+ * 주문 변경은 OrderSummaryListener가 커밋 직전에 refresh()로, 회원 이름 변경은 renameMember()로 넘겨준다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderSummaryService {
+
+    //in 절 크기, Order.orderItems @BatchSize와 맞춤
+    private static final int REFRESH_CHUNK_SIZE = 1000;
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * 주문 id들의 요약을 다시 계산해서 upsert 한다. 호출하는 쪽 트랜잭션에 참여한다.
+     */
+    @Transactional
+    public void refresh(List<Long> orderIds) {
+        for (int from = 0; from < orderIds.size(); from += REFRESH_CHUNK_SIZE) {
+            upsert(orderIds.subList(from, Math.min(from + REFRESH_CHUNK_SIZE, orderIds.size())));
+        }
+    }
+
+    /**
+     * 회원 이름 변경 - 그 회원 주문 요약의 memberName을 한번에 바꾼다. 호출하는 쪽 트랜잭션에 참여한다.
+     */
+    @Transactional
+    public int renameMember(Long memberId, String name) {
+        return orderSummaryRepository.updateMemberName(memberId, name);
+    }
+
+    private int upsert(Collection<Long> orderIds) {
+        Map<Long, OrderSummary> existing = orderSummaryRepository.findAllById(orderIds).stream()
+                .collect(toMap(OrderSummary::getOrderId, s -> s));
+        List<OrderSummary> latest = orderSummaryRepository.aggregate(orderIds);
+        for (OrderSummary summary : latest) {
+            OrderSummary found = existing.get(summary.getOrderId());
+            if (found == null) {
+                orderSummaryRepository.save(summary);
+            } else {
+                found.refresh(summary);
+            }
+        }
+        return latest.size();
+    }
+
+    /**
+     * 원본 테이블에서 읽기 모델 전체를 다시 만든다.(최초 적재, 어긋났을 때 복구용)
+     * 주문 id 순으로 batchSize개씩 끊어서 배치마다 트랜잭션을 따로 커밋한다.
+     * 한 트랜잭션으로 돌리면 영속성 컨텍스트가 계속 커지고 락도 오래 잡는다.
+     * @return 갱신한 주문 수
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 바깥 트랜잭션에 묶이면 배치 커밋이 안된다.
+    public long rebuild(int batchSize) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long rebuilt = 0;
+        Long lastId = 0L;
+        while (true) {
+            Long afterId = lastId;
+            List<Long> orderIds = tx.execute(status -> orderSummaryRepository.findOrderIds(afterId, batchSize));
+            if (orderIds.isEmpty()) {
+                return rebuilt;
+            }
+            rebuilt += tx.execute(status -> upsert(orderIds));
+            lastId = orderIds.get(orderIds.size() - 1);
+        }
+    }
+
+    public long count() {
+        return orderSummaryRepository.count();
+    }
+
+    public List<OrderSummary> findPage(OrderCursor after, int limit) {
+        return orderSummaryRepository.findPage(after, limit);
+    }
+}
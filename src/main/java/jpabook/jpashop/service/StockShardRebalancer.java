@@ -0,0 +1,64 @@
+package jpabook.jpashop.service;
+
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 재고 샤드 리밸런스 (jpashop.stock-shard.rebalance-interval 마다, 0이면 안돌림)
+ * 랜덤 차감이라도 주문량/취소가 치우치면 일부 샤드만 바닥난다. 바닥난 샤드를 찍은 주문은 헛 UPDATE를 하고
+ * 결국 전체 샤드를 잠그는 경로로 빠지니, 샤딩된 상품마다 재고를 주기적으로 고르게 다시 나눈다.
+ */
+@Slf4j
+@Component
+public class StockShardRebalancer {
+
+    private final ItemStockService itemStockService;
+    private final ItemRepository itemRepository;
+    private final ScheduledExecutorService scheduler;
+
+    public StockShardRebalancer(ItemStockService itemStockService,
+                                ItemRepository itemRepository,
+                                @Value("${jpashop.stock-shard.rebalance-interval:10s}") Duration interval) {
+        this.itemStockService = itemStockService;
+        this.itemRepository = itemRepository;
+        if (interval.isZero() || interval.isNegative()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("stock-rebalance-"));
+        this.scheduler.scheduleWithFixedDelay(this::rebalanceAll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return 재고를 옮긴 상품 수
+     */
+    public int rebalanceAll() {
+        int moved = 0;
+        for (Long itemId : itemRepository.findStockShardedIds()) {
+            try {
+                if (itemStockService.rebalance(itemId)) { // 상품마다 트랜잭션 따로
+                    moved++;
+                }
+            } catch (Exception e) {
+                log.warn("재고 샤드 리밸런스 실패 itemId={}", itemId, e);
+            }
+        }
+        return moved;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package jpabook.jpashop.service.async;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.service.OrderAttempt;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 비동기 주문 (jpashop.async-order.enabled=true 일 때만)
+ *
+ * 요청 스레드는 주문을 메모리 큐에 넣고 pendingId만 받아서 바로 돌아간다.
+ * 워커가 큐에서 최대 batch-size개씩 꺼내서 OrderService.orderBatch로 트랜잭션 한번에 처리한다.
+ * (주문마다 커밋하지 않으니 커밋/왕복 비용이 배치 단위로 줄고 insert도 jdbc batch로 묶인다)
+ *
+ * - 큐는 크기 고정(ArrayBlockingQueue, 배열 링버퍼)이라 꽉 차면 기다리지 않고 바로 거절(429)한다.
+ * - 처리 결과는 status-ttl 동안만 들고 있는다.
+ * - 큐에만 있는 주문은 서버가 죽으면 사라진다. 종료할 때는 남은 주문을 다 처리하고 내려간다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.async-order.enabled", havingValue = "true")
+public class AsyncOrderQueue {
+
+    private final OrderService orderService;
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final Cache<String, PendingOrder> statuses;
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public AsyncOrderQueue(OrderService orderService,
+                           @Value("${jpashop.async-order.capacity:10000}") int capacity,
+                           @Value("${jpashop.async-order.workers:2}") int workers,
+                           @Value("${jpashop.async-order.batch-size:100}") int batchSize,
+                           @Value("${jpashop.async-order.status-ttl:10m}") Duration statusTtl) {
+        this.orderService = orderService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .build();
+        this.workers = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("async-order-"));
+        for (int i = 0; i < workers; i++) {
+            this.workers.submit(this::drain);
+        }
+    }
+
+    /**
+     * 주문 접수
+     * @return pendingId (status()로 처리 결과 확인)
+     * @throws OrderQueueFullException 큐가 꽉 찼을 때
+     */
+    public String submit(Long memberId, Long itemId, int count) {
+        if (!running) {
+            throw new OrderQueueFullException("주문 큐가 종료 중입니다.");
+        }
+        String pendingId = UUID.randomUUID().toString();
+        statuses.put(pendingId, PendingOrder.pending(pendingId));
+        if (!queue.offer(new Entry(pendingId, new OrderCommand(memberId, itemId, count)))) {
+            statuses.invalidate(pendingId);
+            throw new OrderQueueFullException("주문 큐가 가득 찼습니다. capacity=" + capacity());
+        }
+        return pendingId;
+    }
+
+    /**
+     * 처리 결과, 모르는 id거나 ttl이 지났으면 null
+     */
+    public PendingOrder status(String pendingId) {
+        return statuses.getIfPresent(pendingId);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public int capacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1); // 쌓여있는 만큼만 더 가져온다.(기다리지 않음)
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Entry> batch) {
+        List<OrderCommand> commands = batch.stream().map(Entry::command).toList();
+        try {
+            List<OrderAttempt> attempts = orderService.orderBatch(commands);
+            for (int i = 0; i < batch.size(); i++) {
+                String pendingId = batch.get(i).pendingId();
+                OrderAttempt attempt = attempts.get(i);
+                statuses.put(pendingId, attempt.isSuccess()
+                        ? PendingOrder.completed(pendingId, attempt.getOrderId())
+                        : PendingOrder.failed(pendingId, attempt.getFailure()));
+            }
+        } catch (RuntimeException e) {
+            // 트랜잭션 전체가 롤백됨 -> 배치 전부 실패
+            log.warn("비동기 주문 배치 실패 size={}", batch.size(), e);
+            for (Entry entry : batch) {
+                statuses.put(entry.pendingId(), PendingOrder.failed(entry.pendingId(), e.getMessage()));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false; // 새 주문은 안받고, 워커는 큐를 비우고 끝난다.
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("비동기 주문 큐 종료 시간 초과, 남은 주문 {}건", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    private record Entry(String pendingId, OrderCommand command) {
+    }
+}
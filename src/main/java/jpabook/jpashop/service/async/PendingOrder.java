@@ -0,0 +1,37 @@
+package jpabook.jpashop.service.async;
+
+import lombok.Getter;
+
+/**
+ * 비동기 주문 처리 상태
+ * PENDING(큐에서 대기/처리중) -> COMPLETED(orderId 있음) 또는 FAILED(failure 있음)
+ */
+@Getter
+public class PendingOrder {
+
+    public enum Status { PENDING, COMPLETED, FAILED }
+
+    private final String pendingId;
+    private final Status status;
+    private final Long orderId;
+    private final String failure;
+
+    private PendingOrder(String pendingId, Status status, Long orderId, String failure) {
+        this.pendingId = pendingId;
+        this.status = status;
+        this.orderId = orderId;
+        this.failure = failure;
+    }
+
+    static PendingOrder pending(String pendingId) {
+        return new PendingOrder(pendingId, Status.PENDING, null, null);
+    }
+
+    static PendingOrder completed(String pendingId, Long orderId) {
+        return new PendingOrder(pendingId, Status.COMPLETED, orderId, null);
+    }
+
+    static PendingOrder failed(String pendingId, String failure) {
+        return new PendingOrder(pendingId, Status.FAILED, null, failure);
+    }
+}
@@ -0,0 +1,65 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.repository.CategoryRow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 트리 노드 (불변, 캐시에 그대로 올려서 여러 요청이 같이 본다)
+ * 자식은 id 순
+ */
+public record CategoryNode(Long id, String name, int depth, List<CategoryNode> children) {
+
+    public CategoryNode {
+        children = List.copyOf(children);
+    }
+
+    /**
+     * CTE 결과(depth 순)를 트리로 조립한다.
+     * 불변이라 자식이 다 만들어진 뒤에 부모를 만들어야 해서 깊은 것부터 거꾸로 올라간다.(재귀 없음, 깊은 트리도 스택 안 터짐)
+     * @return 루트, rows가 비었으면 null
+     */
+    public static CategoryNode assemble(List<CategoryRow> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<CategoryRow> deepestFirst = new ArrayList<>(rows);
+        deepestFirst.sort(Comparator.comparingInt(CategoryRow::depth).reversed()
+                .thenComparing(CategoryRow::id));
+
+        Map<Long, List<CategoryNode>> childrenByParent = new HashMap<>();
+        CategoryNode root = null;
+        for (CategoryRow row : deepestFirst) {
+            CategoryNode node = new CategoryNode(row.id(), row.name(), row.depth(),
+                    childrenByParent.getOrDefault(row.id(), List.of()));
+            childrenByParent.remove(row.id());
+            if (row.depth() == 0) {
+                root = node;
+            } else {
+                childrenByParent.computeIfAbsent(row.parentId(), k -> new ArrayList<>()).add(node);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * 자기 자신 + 자손 id 전부
+     */
+    public List<Long> descendantIds() {
+        List<Long> ids = new ArrayList<>();
+        Deque<CategoryNode> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            CategoryNode node = stack.pop();
+            ids.add(node.id());
+            node.children().forEach(stack::push);
+        }
+        return ids;
+    }
+}
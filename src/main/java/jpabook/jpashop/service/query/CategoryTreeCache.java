@@ -0,0 +1,58 @@
+package jpabook.jpashop.service.query;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.service.CategoryChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 조립된 카테고리 트리 캐시 (키는 서브트리 루트 id)
+ * 트리는 불변(CategoryNode)이라 그대로 나눠줘도 된다.
+ * 카테고리는 잘 안바뀌니 바뀌면(커밋 후) 통째로 무효화한다. 노드 하나가 바뀌어도 그 조상 서브트리가 다 바뀐다.
+ */
+@Component
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+    private final Cache<TreeKey, Optional<CategoryNode>> cache;
+    // 무효화 중에 돌고 있던 조회가 옛날 트리를 다시 넣어도 다음 세대 키로는 안 보이게 한다.(OrderDtoCache와 같은 방식)
+    private final AtomicLong generation = new AtomicLong();
+
+    public CategoryTreeCache(CategoryRepository categoryRepository,
+                             @Value("${jpashop.cache.category-tree.maximum-size:1000}") long maximumSize,
+                             @Value("${jpashop.cache.category-tree.ttl:10m}") Duration ttl) {
+        this.categoryRepository = categoryRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * @return 없는 카테고리면 empty
+     */
+    public Optional<CategoryNode> get(Long rootId) {
+        return cache.get(new TreeKey(generation.get(), rootId),
+                k -> Optional.ofNullable(CategoryNode.assemble(categoryRepository.findSubtree(rootId))));
+    }
+
+    @TransactionalEventListener // 기본 AFTER_COMMIT
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private record TreeKey(long generation, Long rootId) {
+    }
+}
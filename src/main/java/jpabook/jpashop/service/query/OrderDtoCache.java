@@ -0,0 +1,109 @@
+package jpabook.jpashop.service.query;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.OrderChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 주문 조회 DTO 캐시 (v4 simple-orders, v5 orders)
+ * 엔티티가 아니라 DTO를 캐시한다. 키는 (쿼리, offset, limit)
+ *
+ * - Caffeine : 크기 제한(W-TinyLFU 제거) + TTL
+ * - 같은 키로 동시에 요청이 몰려도 DB 조회는 1번만 하고 나머지는 그 결과를 기다린다.
+ * - 주문 생성/취소가 커밋되면 통째로 무효화한다.
+ * - 캐시된 목록은 요청들이 같이 본다. 불변 목록(List.copyOf)으로 넣고 그대로 돌려준다.
+ *   DTO는 @Data라 setter가 있다. 받은 쪽에서 DTO 값을 바꾸지 말 것.(필요하면 복사해서)
+ */
+@Component
+public class OrderDtoCache {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final Cache<CacheKey, List<?>> cache;
+    // 무효화 중에 돌고 있던 조회가 옛날 값을 다시 넣어도 다음 세대 키로는 안 보이게 한다.
+    private final AtomicLong generation = new AtomicLong();
+
+    public OrderDtoCache(OrderQueryRepository orderQueryRepository,
+                         OrderSimpleQueryRepository orderSimpleQueryRepository,
+                         @Value("${jpashop.cache.order-dto.maximum-size:500}") long maximumSize,
+                         @Value("${jpashop.cache.order-dto.ttl:30s}") Duration ttl) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.orderSimpleQueryRepository = orderSimpleQueryRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * v5, limit이 null이면 전체 조회
+     */
+    public List<OrderQueryDto> findAllByDto_optimization(int offset, Integer limit) {
+        return get("v5-orders", offset, limit, () -> withFrozenItems(limit == null
+                ? orderQueryRepository.findAllByDto_optimization()
+                : orderQueryRepository.findAllByDto_optimization(offset, limit)));
+    }
+
+    /**
+     * v4 simple-orders, limit이 null이면 전체 조회
+     */
+    public List<OrderSimpleQueryDto> findOrderDtos(int offset, Integer limit) {
+        return get("v4-simple-orders", offset, limit, () -> limit == null
+                ? orderSimpleQueryRepository.findOrderDtos()
+                : orderSimpleQueryRepository.findOrderDtos(offset, limit));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> get(String query, int offset, Integer limit, Supplier<List<T>> loader) {
+        CacheKey key = new CacheKey(generation.get(), query, limit == null ? 0 : offset, limit);
+        // Caffeine get(key, loader)은 키 단위로 로딩을 묶어준다(single-flight).
+        return (List<T>) cache.get(key, k -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * 주문상품 목록도 같이 나눠 보니 불변으로
+     */
+    private static List<OrderQueryDto> withFrozenItems(List<OrderQueryDto> orders) {
+        for (OrderQueryDto order : orders) {
+            if (order.getOrderItems() != null) {
+                order.setOrderItems(List.copyOf(order.getOrderItems()));
+            }
+        }
+        return orders;
+    }
+
+    @TransactionalEventListener // 기본 AFTER_COMMIT, 롤백되면 무효화 안함
+    public void onOrderChanged(OrderChangedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    private record CacheKey(long generation, String query, int offset, Integer limit) {
+    }
+}
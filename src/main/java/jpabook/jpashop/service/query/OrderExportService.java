@@ -0,0 +1,71 @@
+package jpabook.jpashop.service.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 전체 주문 내보내기 (NDJSON, 한 줄에 주문 하나)
+ * v6처럼 flat row를 주문 단위로 다시 묶지만, 리스트로 모으지 않고 주문 하나가 완성될 때마다 바로 써버린다.
+ * 메모리에는 지금 조립중인 주문 1건만 남아서 주문이 아무리 많아도 힙 사용량이 일정하다.
+ * 스트림이 트랜잭션(커넥션) 안에서만 열려있어야 해서 컨트롤러가 아니라 서비스에 둔다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    private static final int FETCH_SIZE = 500;
+    private static final byte NEW_LINE = '\n';
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return 내보낸 주문 수
+     */
+    public long exportOrders(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<OrderFlatDto> rows = orderQueryRepository.streamAllByDto_flat(FETCH_SIZE)) {
+            OrderQueryDto current = null;
+            Iterator<OrderFlatDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                OrderFlatDto row = iterator.next();
+                //order_id 정렬이라 id가 바뀌면 앞 주문은 끝난 것
+                if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                    if (current != null) {
+                        writeLine(out, current);
+                        count++;
+                    }
+                    current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(),
+                            row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+                }
+                current.getOrderItems().add(
+                        new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+            }
+            if (current != null) {
+                writeLine(out, current);
+                count++;
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    private void writeLine(OutputStream out, OrderQueryDto order) throws IOException {
+        //writeValue(out, ..)는 스트림을 닫아버려서 바이트로 만들어서 직접 쓴다.
+        out.write(objectMapper.writeValueAsBytes(order));
+        out.write(NEW_LINE);
+    }
+}
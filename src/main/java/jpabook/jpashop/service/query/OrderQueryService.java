@@ -20,7 +20,7 @@ import static java.util.stream.Collectors.toList;
 public class OrderQueryService {
 
     public List<OrderApiController.OrderDto> ordersV3(){
-        List<Order> orders = orderRepository.findAllWithItem();
+        List<Order> orders = orderRepository.findAllWithItem(0, 100).content();
         List<OrderApiController.OrderDto> collect = orders.stream()
                 .map(o -> new OrderApiController.OrderDto(o))
                 .collect(toList());
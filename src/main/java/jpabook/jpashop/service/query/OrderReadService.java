@@ -0,0 +1,50 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.FetchPlan;
+import jpabook.jpashop.repository.IdThenFetchPager;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderReadRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 주문을 읽어서 바로 DTO로 바꾸는 api용 (v2, v3.1 orders, v3 simple-orders)
+ * 영속성 컨텍스트/스냅샷 없이 읽고(OrderReadRepository), 돌려주는 엔티티는 그래프가 다 채워진 준영속이라
+ * OSIV가 꺼져 있어도 컨트롤러에서 DTO로 바꿀 수 있다. 바꿔도 DB에는 반영되지 않는다.
+ * expand(v8)는 EntityGraph를 써야 해서 일반 영속성 컨텍스트로 읽는다.(읽기전용 트랜잭션이라 스냅샷은 안 남긴다)
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderReadService {
+
+    private final OrderReadRepository orderReadRepository;
+    private final OrderRepository orderRepository;
+
+    public List<Order> findAllWithMemberDelivery(int offset, int limit) {
+        return orderReadRepository.findAllWithMemberDelivery(offset, limit);
+    }
+
+    /**
+     * 상품 없는 주문은 content에서 빠진다. 다음 페이지 여부는 Page.hasNext로
+     */
+    public IdThenFetchPager.Page<Order, Long> findAllWithItem(int offset, int limit) {
+        return orderReadRepository.findAllWithItem(offset, limit);
+    }
+
+    public IdThenFetchPager.Page<Order, OrderCursor> findAllWithItem(OrderCursor after, int limit) {
+        return orderReadRepository.findAllWithItem(after, limit);
+    }
+
+    /**
+     * 요청한 연관관계(plan)만 채워진 주문 목록, 나머지 연관관계는 건드리면 안된다.(트랜잭션 밖이라 지연로딩 예외)
+     */
+    public List<Order> findAll(FetchPlan plan, int offset, int limit) {
+        return orderRepository.findAll(plan, offset, limit);
+    }
+}
@@ -0,0 +1,58 @@
+package jpabook.jpashop.service.query;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jpabook.jpashop.service.MemberChangedEvent;
+import jpabook.jpashop.service.OrderChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 목록 api의 전체 건수(totalCount) 캐시
+ * count 쿼리는 테이블 전체를 세야 해서 비싸다. 클라이언트가 count=true로 요청할 때만 세고,
+ * 한번 센 값은 ttl 동안 그대로 내려준다.
+ * 주문이 생기거나 바뀌면(OrderChangedEvent) 주문/주문요약 건수를, 회원이 바뀌면(MemberChangedEvent) 회원 건수를 커밋 뒤에 뺀다.
+ * 이 서버에서 커밋된 것만 이벤트로 오니 다른 서버에서 생긴 주문은 ttl이 지나야 반영된다.(근사값)
+ * 같은 키로 동시에 몰려도 count 쿼리는 1번만 나간다.
+ */
+@Component
+public class TotalCountCache {
+
+    public static final String ORDERS = "orders";
+    public static final String ORDER_SUMMARIES = "order-summaries";
+    public static final String MEMBERS = "members";
+
+    private final Cache<String, Long> cache;
+
+    public TotalCountCache(@Value("${jpashop.cache.total-count.ttl:10s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * count=false면 null (응답에서 totalCount 생략)
+     */
+    public Long get(boolean requested, String key, LongSupplier countQuery) {
+        if (!requested) {
+            return null;
+        }
+        return cache.get(key, k -> countQuery.getAsLong());
+    }
+
+    @TransactionalEventListener // 기본 AFTER_COMMIT, 롤백되면 그대로
+    public void onOrderChanged(OrderChangedEvent event) {
+        cache.invalidateAll(List.of(ORDERS, ORDER_SUMMARIES));
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        cache.invalidate(MEMBERS);
+    }
+}
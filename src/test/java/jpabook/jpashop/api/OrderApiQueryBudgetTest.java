@@ -0,0 +1,228 @@
+package jpabook.jpashop.api;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidSelectionException;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static jpabook.jpashop.support.QueryBudget.*;
+import static org.junit.Assert.*;
+
+/**
+ * 엔드포인트별 쿼리 예산
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderApiQueryBudgetTest {
+
+    private static final int ORDERS = 6; // N+1 기준(5)보다 많게
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OrderApiController orderApiController;
+    @Autowired OrderSimpleApiController orderSimpleApiController;
+    @Autowired MemberApiController memberApiController;
+    @Autowired OrderQueryRepository orderQueryRepository;
+
+    @Before
+    public void setUp() {
+        Book book = new Book();
+        book.setName("예산 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        for (int i = 0; i < ORDERS; i++) {
+            Member member = new Member();
+            member.setName("예산회원" + i);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void simpleOrders_v2는_N플러스1() throws Exception {
+        assertNPlusOne(() -> orderSimpleApiController.ordersV2(0, 100, false));
+    }
+
+    @Test
+    public void simpleOrders_v3는_패치조인_한방() throws Exception {
+        assertStatements(1, () -> orderSimpleApiController.ordersV3(0, 100, false));
+    }
+
+    @Test
+    public void orders_v2는_두방() throws Exception {
+        assertStatements(2, () -> orderApiController.ordersV2(0, 100, false));
+    }
+
+    @Test
+    public void orders_v4는_N플러스1() throws Exception {
+        assertNPlusOne(() -> orderQueryRepository.findOrderQueryDtos());
+    }
+
+    @Test
+    public void orders_v5는_두방() throws Exception {
+        assertStatements(2, () -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    @Test
+    public void orders_v6는_한방() throws Exception {
+        assertStatements(1, () -> orderApiController.ordersV6(null, 100, false));
+    }
+
+    @Test
+    public void orders_v3는_id페이지_패치조인_두방() throws Exception {
+        assertStatements(2, () -> orderApiController.ordersV3(0, null, 100, false));
+    }
+
+    @Test
+    public void orders_v3_페이징() throws Exception {
+        // when
+        PageResult<OrderApiController.OrderDto> first = orderApiController.ordersV3(0, null, 4, false);
+        PageResult<OrderApiController.OrderDto> second = orderApiController.ordersV3(Integer.parseInt(first.getNextCursor()), null, 4, false);
+        PageResult<OrderApiController.OrderDto> keyset = orderApiController.ordersV3(0, first.getData().get(3).getOrderId(), 4, false);
+
+        // then
+        assertEquals(4, first.getSize());
+        List<Long> ids = Stream.concat(first.getData().stream(), second.getData().stream())
+                .map(OrderApiController.OrderDto::getOrderId)
+                .toList();
+        assertEquals("주문상품 row가 아니라 주문 단위로, 주문 id 순, 중복 없이", ids.stream().sorted().distinct().toList(), ids);
+        assertEquals("offset과 keyset이 같은 페이지", ids.subList(4, ids.size()),
+                keyset.getData().stream().map(OrderApiController.OrderDto::getOrderId).toList());
+        assertTrue(second.getData().stream().allMatch(o -> !o.getOrderItems().isEmpty()));
+    }
+
+    @Test
+    public void orders_v8_expand_없으면_주문만_한방() throws Exception {
+        // when
+        AtomicReference<PageResult<OrderApiController.OrderView>> page = new AtomicReference<>();
+        assertStatements(1, () -> page.set(orderApiController.ordersV8(null, "orderStatus", 0, 100, false)));
+
+        // then
+        OrderApiController.OrderView order = page.get().getData().get(0);
+        assertNotNull(order.getOrderStatus());
+        assertNull("fields에 없으면 빠진다", order.getOrderDate());
+        assertNull("expand 안하면 연관관계도 빠진다", order.getMember());
+        assertNull(order.getOrderItems());
+    }
+
+    @Test
+    public void orders_v8_ToOne_expand는_조인_한방() throws Exception {
+        assertStatements(1, () -> orderApiController.ordersV8("member,delivery", null, 0, 100, false)
+                .getData().forEach(o -> assertNotNull(o.getMember().getName())));
+    }
+
+    @Test
+    public void orders_v8_orderItems_expand는_두방() throws Exception {
+        assertStatements(2, () -> orderApiController.ordersV8("member,delivery,orderItems.item", null, 0, 100, false)
+                .getData().forEach(o -> assertNotNull(o.getOrderItems().get(0).getItemName())));
+    }
+
+    @Test(expected = InvalidSelectionException.class)
+    public void orders_v8_모르는_expand() throws Exception {
+        orderApiController.ordersV8("member.orders", null, 0, 100, false);
+    }
+
+    @Test
+    public void members_v3_orders_expand는_두방() throws Exception {
+        assertStatements(1, () -> memberApiController.memberV3(null, null, null, 100, false));
+        em.clear();
+        assertStatements(2, () -> memberApiController.memberV3("orders", "name", null, 100, false)
+                .getData().forEach(m -> assertNotNull(m.getOrders())));
+    }
+
+    @Test
+    public void members_v1_after로_다음_페이지() throws Exception {
+        // when
+        List<Member> first = memberApiController.membersV1(null, 3);
+        List<Member> second = memberApiController.membersV1(first.get(2).getId(), 3);
+
+        // then
+        assertEquals(3, first.size());
+        assertFalse(second.isEmpty());
+        assertTrue("앞 페이지 다음 회원부터", second.get(0).getId() > first.get(2).getId());
+    }
+
+    @Test
+    public void orders_v3_1_커서는_두방() throws Exception {
+        assertStatements(2, () -> orderApiController.ordersV3_cursor("", 100, false));
+    }
+
+    @Test
+    public void orders_v6_커서_페이징() throws Exception {
+        // when
+        PageResult<OrderQueryDto> first = orderApiController.ordersV6(null, 4, false);
+        PageResult<OrderQueryDto> second = orderApiController.ordersV6(Long.valueOf(first.getNextCursor()), 4, false);
+
+        // then
+        assertEquals(4, first.getSize());
+        assertNull("count=false면 totalCount 생략", first.getTotalCount());
+        assertEquals("nextCursor는 마지막 주문 id", first.getData().get(3).getOrderId(), Long.valueOf(first.getNextCursor()));
+        List<Long> ids = Stream.concat(first.getData().stream(), second.getData().stream())
+                .map(OrderQueryDto::getOrderId)
+                .toList();
+        assertEquals("주문 id 순, 중복 없이", ids.stream().sorted().distinct().toList(), ids);
+        assertTrue(second.getData().stream().allMatch(o -> !o.getOrderItems().isEmpty()));
+    }
+
+    @Test
+    public void orders_v6_상품없는_주문이_있어도_커서는_id_페이지로_넘어간다() throws Exception {
+        // given : 상품 없는 주문, 그 다음 주문
+        Member member = new Member();
+        member.setName("빈주문회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("다음 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order empty = Order.createOrder(member, delivery);
+        em.persist(empty);
+        Long nextOrderId = orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+        em.clear();
+
+        // when
+        PageResult<OrderQueryDto> first = orderApiController.ordersV6(empty.getId() - 1, 1, false);
+        PageResult<OrderQueryDto> second = orderApiController.ordersV6(Long.valueOf(first.getNextCursor()), 1, false);
+
+        // then
+        assertTrue("상품 없는 주문은 응답에서 빠진다", first.getData().isEmpty());
+        assertEquals("id 페이지는 꽉 찼으니 다음 커서가 있다", String.valueOf(empty.getId()), first.getNextCursor());
+        assertEquals(nextOrderId, second.getData().get(0).getOrderId());
+    }
+
+    @Test
+    public void totalCount는_캐시해서_count쿼리를_매번_안날린다() throws Exception {
+        // given
+        PageResult<OrderQueryDto> page = orderApiController.ordersV6(null, 4, true);
+
+        // when then
+        assertNotNull(page.getTotalCount());
+        assertStatements(1, () -> orderApiController.ordersV6(null, 4, true));
+    }
+}
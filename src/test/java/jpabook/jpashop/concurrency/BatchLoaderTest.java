@@ -0,0 +1,163 @@
+package jpabook.jpashop.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.*;
+
+public class BatchLoaderTest {
+
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    List<Set<Long>> batches = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void 창_안의_요청은_한번에_조회() throws Exception {
+        // given
+        BatchLoader<Long, String> loader = loader(Duration.ofMillis(50), 100, this::names);
+
+        // when
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            futures.add(loader.load(id));
+        }
+        CompletableFuture<String> duplicate = loader.load(1L);
+
+        // then
+        assertEquals("name3", futures.get(2).get(1, TimeUnit.SECONDS));
+        assertEquals("같은 키는 같은 결과", "name1", duplicate.get(1, TimeUnit.SECONDS));
+        assertEquals("조회는 한번", 1, batches.size());
+        assertEquals("중복 키는 한번만", 10, batches.get(0).size());
+    }
+
+    @Test
+    public void 최대크기가_차면_창을_안기다림() throws Exception {
+        // given
+        BatchLoader<Long, String> loader = loader(Duration.ofMinutes(1), 3, this::names);
+
+        // when
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            futures.add(loader.load(id));
+        }
+
+        // then
+        for (CompletableFuture<String> future : futures) {
+            assertNotNull(future.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void 없는_키는_null() throws Exception {
+        // given
+        BatchLoader<Long, String> loader = loader(Duration.ofMillis(5), 100,
+                ids -> names(Set.of(1L)));
+
+        // when
+        CompletableFuture<String> found = loader.load(1L);
+        CompletableFuture<String> missing = loader.load(2L);
+
+        // then
+        assertEquals("name1", found.get(1, TimeUnit.SECONDS));
+        assertNull(missing.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void 조회_예외는_기다리던_요청_전부에게() throws Exception {
+        // given
+        BatchLoader<Long, String> loader = loader(Duration.ofMillis(5), 100, ids -> {
+            throw new IllegalStateException("db down");
+        });
+
+        // when
+        CompletableFuture<String> first = loader.load(1L);
+        CompletableFuture<String> second = loader.load(2L);
+
+        // then
+        for (CompletableFuture<String> future : List.of(first, second)) {
+            try {
+                future.join();
+                fail("예외가 발생해야 한다.");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    public void 배치를_못_넘기면_기다리던_요청_전부_실패() throws Exception {
+        // given : 조회 스레드가 배치를 안 받는다 (종료 중, 큐 꽉 참)
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException("loader pool full");
+        };
+        BatchLoader<Long, String> windowed = new BatchLoader<>("test", this::names, Duration.ofMillis(5), 100,
+                scheduler, rejecting, new SimpleMeterRegistry());
+        BatchLoader<Long, String> full = new BatchLoader<>("test", this::names, Duration.ofMinutes(1), 2,
+                scheduler, rejecting, new SimpleMeterRegistry());
+
+        // when
+        List<CompletableFuture<String>> futures = List.of(
+                windowed.load(1L), windowed.load(2L), // 창이 끝나면 scheduler 스레드에서 넘긴다
+                full.load(1L), full.load(2L));        // 꽉 차서 요청 스레드에서 넘긴다
+
+        // then
+        for (CompletableFuture<String> future : futures) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("예외가 발생해야 한다.");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void 타이머가_종료됐으면_창을_안기다림() throws Exception {
+        // given
+        scheduler.shutdown();
+        BatchLoader<Long, String> loader = loader(Duration.ofMinutes(1), 100, this::names);
+
+        // when
+        CompletableFuture<String> future = loader.load(1L);
+
+        // then
+        assertEquals("name1", future.get(1, TimeUnit.SECONDS));
+    }
+
+    private BatchLoader<Long, String> loader(Duration window, int maxBatchSize,
+                                             Function<Set<Long>, Map<Long, String>> batch) {
+        return new BatchLoader<>("test", batch, window, maxBatchSize, scheduler, executor, new SimpleMeterRegistry());
+    }
+
+    private Map<Long, String> names(Set<Long> ids) {
+        batches.add(Set.copyOf(ids));
+        return ids.stream().collect(toMap(id -> id, id -> "name" + id));
+    }
+}
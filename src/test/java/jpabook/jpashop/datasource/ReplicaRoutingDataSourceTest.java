@@ -0,0 +1,101 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 3개로 primary/replica 라우팅 확인
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    ReplicaDataSources dataSources;
+    ReplicaRoutingDataSource routing;
+
+    @Before
+    public void setUp() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica1", h2("replica1"));
+        replicas.put("replica2", h2("replica2"));
+        dataSources = new ReplicaDataSources(h2("primary"), replicas, null, Duration.ofSeconds(5));
+        routing = new ReplicaRoutingDataSource(dataSources, ReplicaRoutingDataSource.Strategy.ROUND_ROBIN);
+        routing.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void 쓰기는_primary() throws Exception {
+        assertEquals("primary", databaseOf(routing));
+    }
+
+    @Test
+    public void 읽기전용은_replica_라운드로빈() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Set<String> used = new HashSet<>();
+        used.add(databaseOf(routing));
+        used.add(databaseOf(routing));
+
+        assertEquals(Set.of("replica1", "replica2"), used);
+    }
+
+    @Test
+    public void 밀린_replica는_건너뛴다() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        dataSources.markStale("replica1");
+
+        assertEquals("replica2", databaseOf(routing));
+        assertEquals("replica2", databaseOf(routing));
+    }
+
+    @Test
+    public void replica가_다_밀리면_primary() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        dataSources.markStale("replica1");
+        dataSources.markStale("replica2");
+
+        assertEquals("primary", databaseOf(routing));
+    }
+
+    @Test
+    public void lag_쿼리로_지연_판단() throws Exception {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica1", h2("replica1"));
+        ReplicaDataSources slow = new ReplicaDataSources(h2("primary"), replicas, "select 10", Duration.ofSeconds(5));
+        ReplicaDataSources fast = new ReplicaDataSources(h2("primary"), replicas, "select 0", Duration.ofSeconds(5));
+
+        slow.checkLag();
+        fast.checkLag();
+
+        assertFalse("10초 밀림 > 5초", slow.isFresh("replica1"));
+        assertTrue(fast.isFresh("replica1"));
+    }
+
+    private static String databaseOf(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL(); // jdbc:h2:mem:replica1
+            return url.substring(url.lastIndexOf(':') + 1);
+        }
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,104 @@
+package jpabook.jpashop.domain;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static jpabook.jpashop.support.QueryBudget.*;
+import static org.junit.Assert.*;
+
+/**
+ * 하이버네이트 바이트코드 향상 (build.gradle hibernate.enhancement)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class BytecodeEnhancementTest {
+
+    private static final int ORDERS = 3;
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired MemberRepository memberRepository;
+
+    private Long memberId;
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Member member = new Member();
+        member.setName("향상회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("향상 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        for (int i = 0; i < ORDERS; i++) {
+            orderIds.add(orderService.order(member.getId(), book.getId(), 1));
+        }
+        memberId = member.getId();
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void 배송을_읽을때_주문을_같이_조회하지_않는다() throws Exception {
+        // given
+        Long deliveryId = em.find(Order.class, orderIds.get(0)).getDelivery().getId();
+        em.clear();
+
+        // when
+        AtomicReference<Delivery> delivery = new AtomicReference<>();
+        assertStatements(1, () -> delivery.set(em.find(Delivery.class, deliveryId)));
+
+        // then
+        assertFalse("delivery.order는 아직 안 읽었다", Hibernate.isPropertyInitialized(delivery.get(), "order"));
+        assertStatements(1, () -> delivery.get().getOrder().getStatus());
+    }
+
+    @Test
+    public void 회원_주문수는_count_쿼리로() throws Exception {
+        // given
+        Member member = em.find(Member.class, memberId);
+
+        // when
+        AtomicReference<Long> count = new AtomicReference<>();
+        assertStatements(1, () -> count.set(memberRepository.countOrders(memberId)));
+
+        // then
+        assertEquals(ORDERS, count.get().longValue());
+        assertFalse("주문 컬렉션은 초기화하지 않는다", Hibernate.isInitialized(member.getOrders()));
+    }
+
+    @Test
+    public void 바뀐_필드만_추적한다() throws Exception {
+        // given
+        Member member = em.find(Member.class, memberId);
+        SelfDirtinessTracker tracker = (SelfDirtinessTracker) member;
+        assertFalse(tracker.$$_hibernate_hasDirtyAttributes());
+
+        // when
+        member.setName("바뀐회원");
+
+        // then
+        assertArrayEquals(new String[]{"name"}, tracker.$$_hibernate_getDirtyAttributes());
+        assertStatements(1, () -> em.flush()); // update 1번
+        assertFalse("flush 후 추적 초기화", tracker.$$_hibernate_hasDirtyAttributes());
+    }
+}
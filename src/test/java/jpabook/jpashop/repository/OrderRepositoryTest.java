@@ -0,0 +1,149 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.query.OrderReadService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    private static final long ID_BASE = 1_000_000L;
+    private static final int PAGE_SIZE = 2;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int ORDER_COUNT = PAGE_SIZE * DEEP_PAGE + 1;
+    private static final LocalDateTime BASE_DATE = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    OrderReadService orderReadService;
+
+    /**
+     * v3.1 커서 api가 타는 경로 (OrderReadService, StatelessSession)
+     */
+    @Test
+    public void 커서페이징_깊은페이지도_쿼리수가_같다() throws Exception {
+        // given
+        seedOrders();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        // when
+        OrderCursor firstPageCursor = cursorOf(ORDER_COUNT + 1); // 시드 데이터의 첫 페이지
+        OrderCursor deepPageCursor = cursorOf(ORDER_COUNT - PAGE_SIZE * (DEEP_PAGE - 1) + 1); // 10,000번째 페이지
+
+        em.clear();
+        statistics.clear();
+        List<Order> firstPage = loadPage(firstPageCursor);
+        long firstPageQueries = statistics.getPrepareStatementCount();
+
+        em.clear();
+        statistics.clear();
+        List<Order> deepPage = loadPage(deepPageCursor);
+        long deepPageQueries = statistics.getPrepareStatementCount();
+
+        // then
+        assertEquals(List.of(ID_BASE + ORDER_COUNT, ID_BASE + ORDER_COUNT - 1),
+                firstPage.stream().map(Order::getId).toList());
+        assertEquals(List.of(ID_BASE + 3, ID_BASE + 2),
+                deepPage.stream().map(Order::getId).toList());
+        assertEquals("커서 페이지, 주문 그래프 패치조인 2번", 2, firstPageQueries);
+        assertEquals("10,000번째 페이지도 첫 페이지와 쿼리 수가 같아야 한다.", firstPageQueries, deepPageQueries);
+    }
+
+    @Test
+    public void 커서_인코딩() throws Exception {
+        OrderCursor cursor = new OrderCursor(BASE_DATE.plusNanos(123_000), 42L);
+
+        OrderCursor decoded = OrderCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getOrderDate(), decoded.getOrderDate());
+        assertEquals(cursor.getOrderId(), decoded.getOrderId());
+    }
+
+    @Test(expected = PersistenceException.class)
+    public void 컬렉션_패치조인_메모리_페이징은_예외() throws Exception {
+        em.createQuery("select o from Order o join fetch o.orderItems oi", Order.class)
+                .setMaxResults(10)
+                .getResultList();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 잘못된_커서() throws Exception {
+        OrderCursor.decode("not-a-cursor");
+    }
+
+    private List<Order> loadPage(OrderCursor cursor) {
+        List<Order> orders = orderReadService.findAllWithItem(cursor, PAGE_SIZE).content();
+        // OrderDto 변환과 같은 그래프를 건드린다. (패치조인으로 다 채워져 있어서 쿼리 안나감)
+        orders.forEach(o -> {
+            o.getMember().getName();
+            o.getDelivery().getAddress();
+            o.getOrderItems().forEach(oi -> oi.getItem().getName());
+        });
+        return orders;
+    }
+
+    private OrderCursor cursorOf(int seq) {
+        return new OrderCursor(BASE_DATE.plusSeconds(seq), ID_BASE + seq);
+    }
+
+    /**
+     * 엔티티로 2만건 넣으면 너무 느려서 H2 system_range로 한번에 넣는다.
+     * 주문 seq번은 id = ID_BASE + seq, orderDate = BASE_DATE + seq초
+     */
+    private void seedOrders() {
+        Member member = new Member();
+        member.setName("커서회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("커서 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        em.flush();
+
+        em.createNativeQuery(
+                        "insert into delivery (delivery_id, city, street, zipcode, status) " +
+                                "select :base + x, '서울', '강가', '123-123', 'READY' from system_range(1, :count)")
+                .setParameter("base", ID_BASE)
+                .setParameter("count", ORDER_COUNT)
+                .executeUpdate();
+        em.createNativeQuery(
+                        "insert into orders (order_id, member_id, delivery_id, order_date, status) " +
+                                "select :base + x, :memberId, :base + x, dateadd('SECOND', x, :baseDate), 'ORDER' " +
+                                "from system_range(1, :count)")
+                .setParameter("base", ID_BASE)
+                .setParameter("memberId", member.getId())
+                .setParameter("baseDate", BASE_DATE)
+                .setParameter("count", ORDER_COUNT)
+                .executeUpdate();
+        em.createNativeQuery(
+                        "insert into order_item (order_item_id, order_id, item_id, order_price, count) " +
+                                "select :base + x, :base + x, :itemId, 10000, 1 from system_range(1, :count)")
+                .setParameter("base", ID_BASE)
+                .setParameter("itemId", book.getId())
+                .setParameter("count", ORDER_COUNT)
+                .executeUpdate();
+    }
+}
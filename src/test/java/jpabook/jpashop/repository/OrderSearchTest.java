@@ -0,0 +1,95 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 회원 이름 인덱스는 커밋된 회원만 보여서 like 경로로 테스트한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.member-search.enabled=false")
+@Transactional
+public class OrderSearchTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderSearchQueries orderSearchQueries;
+
+    @Test
+    public void 상태_회원명_정렬_페이징() throws Exception {
+        // given
+        String name = "검색회원" + System.nanoTime();
+        List<Long> orderIds = createOrders(name, 5);
+        orderService.cancelOrder(orderIds.get(0));
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(name);
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        orderSearch.setSort(OrderSort.ID_DESC);
+        orderSearch.setOffset(1);
+        orderSearch.setLimit(2);
+
+        // when
+        List<Order> orders = orderRepository.findAllByCriteria(orderSearch);
+
+        // then
+        assertEquals(List.of(orderIds.get(3), orderIds.get(2)), orders.stream().map(Order::getId).toList());
+    }
+
+    @Test
+    public void 같은모양이면_등록된쿼리_재사용() throws Exception {
+        // given
+        String name = "재사용회원" + System.nanoTime();
+        createOrders(name, 1);
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(name);
+        orderSearch.setSort(OrderSort.ORDER_DATE_ASC);
+        orderRepository.findAllByCriteria(orderSearch);
+        double hits = orderSearchQueries.hitCount();
+        double misses = orderSearchQueries.missCount();
+
+        // when
+        orderSearch.setMemberName(name.substring(1));
+        List<Order> orders = orderRepository.findAllByCriteria(orderSearch);
+
+        // then
+        assertEquals(1, orders.size());
+        assertEquals(hits + 1, orderSearchQueries.hitCount(), 0);
+        assertEquals(misses, orderSearchQueries.missCount(), 0);
+    }
+
+    private List<Long> createOrders(String memberName, int count) {
+        Member member = new Member();
+        member.setName(memberName);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("검색 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orderIds.add(orderService.order(member.getId(), book.getId(), 1));
+        }
+        return orderIds;
+    }
+}
@@ -0,0 +1,127 @@
+package jpabook.jpashop.repository.order.query;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitor.QueryCount;
+import jpabook.jpashop.monitor.QueryCountHolder;
+import jpabook.jpashop.service.BulkOrderDto;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.support.CommittedTestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 워커 스레드는 자기 EntityManager로 읽어서 커밋된 데이터만 보인다. 그래서 @Transactional 안 붙이고 @After에서 지운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.order-query.in-chunk-size=" + OrderItemChunkLoaderTest.CHUNK_SIZE)
+public class OrderItemChunkLoaderTest {
+
+    static final int CHUNK_SIZE = 4;
+
+    @Autowired OrderItemChunkLoader orderItemChunkLoader;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    CommittedTestData testData;
+    List<Long> orderIds;
+
+    @Before
+    public void setUp() {
+        testData = new CommittedTestData(transactionManager, em);
+        Long memberId = testData.member(createMember());
+        Long itemA = testData.item(createBook("청크 JPA"));
+        Long itemB = testData.item(createBook("청크 스프링"));
+        List<BulkOrderDto> requests = IntStream.range(0, CHUNK_SIZE * 2 + 1)
+                .mapToObj(i -> new BulkOrderDto(memberId, List.of(
+                        new BulkOrderDto.Line(itemA, 1),
+                        new BulkOrderDto.Line(itemB, i + 1))))
+                .toList();
+        orderIds = orderService.bulkOrder(requests);
+    }
+
+    @After
+    public void tearDown() {
+        testData.deleteAll();
+    }
+
+    @Test
+    public void 청크_경계에서도_in_쿼리_한번과_같은_결과() throws Exception {
+        for (int size : new int[]{CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, CHUNK_SIZE * 2 + 1}) {
+            // given
+            List<Long> ids = orderIds.subList(0, size);
+
+            // when
+            Map<Long, List<OrderItemQueryDto>> chunked = orderItemChunkLoader.findOrderItemMap(ids);
+
+            // then
+            assertEquals("주문 " + size + "개", singleInQuery(ids), sorted(chunked));
+            assertEquals(size > CHUNK_SIZE, orderItemChunkLoader.needsChunking(ids));
+        }
+    }
+
+    @Test
+    public void 워커_SQL도_부른_쪽_구간에_집계() throws Exception {
+        // when : 4 + 4 + 1, 청크마다 1번
+        QueryCount count = QueryCountHolder.measure(() -> orderItemChunkLoader.findOrderItemMap(orderIds));
+
+        // then
+        assertEquals(3, count.getStatements());
+    }
+
+    private Map<Long, List<OrderItemQueryDto>> singleInQuery(List<Long> ids) {
+        return sorted(em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id,i.name,oi.orderPrice, oi.count)" +
+                                "from OrderItem oi " +
+                                "join oi.item i " +
+                                "where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", ids)
+                .getResultList().stream()
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId)));
+    }
+
+    //주문 안의 주문상품 순서는 청크와 상관없이 DB 마음이라 맞춰서 비교
+    private static Map<Long, List<OrderItemQueryDto>> sorted(Map<Long, List<OrderItemQueryDto>> orderItemMap) {
+        return orderItemMap.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().stream()
+                        .sorted(Comparator.comparing(OrderItemQueryDto::getItemName))
+                        .toList()));
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("청크회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(1000);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
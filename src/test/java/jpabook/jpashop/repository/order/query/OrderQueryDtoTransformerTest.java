@@ -0,0 +1,129 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+/**
+ * DB 없이 JDBC row 모양의 Object[]로 (OrderFlatMappingBenchmark와 같은 데이터)
+ */
+public class OrderQueryDtoTransformerTest {
+
+    private static final int ORDERS = 1000;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    private final List<Object[]> rows = rows();
+
+    @Test
+    public void 주문_id_순서대로_한번에_조립() throws Exception {
+        // when
+        List<OrderQueryDto> result = transformer();
+
+        // then
+        assertEquals(ORDERS, result.size());
+        assertEquals(Long.valueOf(1), result.get(0).getOrderId());
+        assertEquals(Long.valueOf(ORDERS), result.get(ORDERS - 1).getOrderId());
+        assertEquals(ITEMS_PER_ORDER, result.get(0).getOrderItems().size());
+        assertEquals(toIds(groupingBy()), toIds(result));
+    }
+
+    @Test
+    public void 주문상품_없는_주문은_빈_목록으로() throws Exception {
+        // given : left join이라 주문상품 컬럼이 null인 row
+        OrderQueryDtoTransformer transformer = new OrderQueryDtoTransformer();
+        Address address = new Address("서울", "강가", "123-123");
+        List<OrderQueryDto> transformed = List.of(
+                transformer.transformTuple(new Object[]{1L, "회원1", LocalDateTime.now(), OrderStatus.ORDER, address, null, null, null}, null),
+                transformer.transformTuple(new Object[]{2L, "회원2", LocalDateTime.now(), OrderStatus.ORDER, address, "상품", 10000, 1}, null));
+
+        // when
+        List<OrderQueryDto> result = transformer.transformList(transformed);
+
+        // then
+        assertEquals(2, result.size());
+        assertTrue(result.get(0).getOrderItems().isEmpty());
+        assertEquals(1, result.get(1).getOrderItems().size());
+    }
+
+    @Test
+    public void 예전_groupingBy보다_적게_할당() throws Exception {
+        // given : JIT가 돌고 나서 잰다
+        for (int i = 0; i < 20; i++) {
+            groupingBy();
+            transformer();
+        }
+
+        // when
+        long before = allocatedBytes(this::groupingBy);
+        long after = allocatedBytes(this::transformer);
+
+        // then
+        assertTrue("groupingBy=" + before + "B, transformer=" + after + "B", after < before);
+    }
+
+    /**
+     * 예전 v6 (row마다 OrderFlatDto, 키용 OrderQueryDto, 맵 엔트리 + 그룹마다 OrderQueryDto 한번 더)
+     */
+    private List<OrderQueryDto> groupingBy() {
+        List<OrderFlatDto> flats = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            flats.add(new OrderFlatDto((Long) row[0], (String) row[1], (LocalDateTime) row[2], (OrderStatus) row[3],
+                    (Address) row[4], (String) row[5], (Integer) row[6], (Integer) row[7]));
+        }
+        //메서드 이름(groupingBy)이 같아서 static import가 가려진다
+        return flats.stream()
+                .collect(Collectors.groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
+                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
+                )).entrySet().stream()
+                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+                .collect(toList());
+    }
+
+    private List<OrderQueryDto> transformer() {
+        OrderQueryDtoTransformer transformer = new OrderQueryDtoTransformer();
+        List<OrderQueryDto> transformed = new ArrayList<>(rows.size()); // 하이버네이트가 row 결과를 모으는 리스트
+        for (Object[] row : rows) {
+            transformed.add(transformer.transformTuple(row, null));
+        }
+        return transformer.transformList(transformed);
+    }
+
+    private static long allocatedBytes(Supplier<List<OrderQueryDto>> mapping) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadAllocatedBytes();
+        List<OrderQueryDto> result = mapping.get();
+        long allocated = threads.getCurrentThreadAllocatedBytes() - start;
+        assertEquals(ORDERS, result.size());
+        return allocated;
+    }
+
+    private static List<String> toIds(List<OrderQueryDto> orders) {
+        return orders.stream()
+                .sorted(Comparator.comparing(OrderQueryDto::getOrderId))
+                .map(o -> o.getOrderId() + ":" + o.getOrderItems().stream().map(OrderItemQueryDto::getItemName).toList())
+                .toList();
+    }
+
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>(ORDERS * ITEMS_PER_ORDER);
+        Address address = new Address("서울", "강가", "123-123");
+        LocalDateTime orderDate = LocalDateTime.now();
+        for (long orderId = 1; orderId <= ORDERS; orderId++) {
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                rows.add(new Object[]{orderId, "회원" + orderId, orderDate, OrderStatus.ORDER, address, "상품" + i, 10000, 1});
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,73 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.repository.MemberRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * rebuild 도중의 index()/검색 (DB 없이, 회원 목록은 MemberRepository를 덮어써서)
+ */
+public class LuceneMemberNameIndexTest {
+
+    private Supplier<List<MemberNameEntry>> firstBatch = List::of;
+    private final LuceneMemberNameIndex index = new LuceneMemberNameIndex(new MemberRepository(null) {
+        @Override
+        public List<MemberNameEntry> findNameEntries(Long afterId, int limit) {
+            return afterId == 0L ? firstBatch.get() : List.of();
+        }
+    });
+
+    @After
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    public void 첫_생성_전에는_like로() throws Exception {
+        assertEquals(Optional.empty(), index.findMemberIds("철수", 100));
+
+        index.rebuild();
+
+        assertEquals(Optional.of(List.of()), index.findMemberIds("철수", 100));
+    }
+
+    @Test
+    public void 다시_만드는_동안에도_이전_인덱스로_검색() throws Exception {
+        // given
+        firstBatch = () -> List.of(new MemberNameEntry(1L, "김철수"));
+        index.rebuild();
+
+        // when
+        firstBatch = () -> {
+            assertEquals("rebuild 도중", List.of(1L), index.findMemberIds("철수", 100).get());
+            return List.of(new MemberNameEntry(1L, "김철수"), new MemberNameEntry(2L, "이영희"));
+        };
+        index.rebuild();
+
+        // then
+        assertEquals(List.of(2L), index.findMemberIds("영희", 100).get());
+    }
+
+    @Test
+    public void 다시_만드는_동안_바뀐_이름이_예전_이름에_안_덮인다() throws Exception {
+        // given : DB를 읽은 뒤에 이름변경이 커밋됐다
+        firstBatch = () -> {
+            List<MemberNameEntry> read = List.of(new MemberNameEntry(1L, "변경전"));
+            index.index(1L, "변경후");
+            return read;
+        };
+
+        // when
+        index.rebuild();
+
+        // then
+        assertEquals(List.of(1L), index.findMemberIds("변경후", 100).get());
+        assertTrue(index.findMemberIds("변경전", 100).get().isEmpty());
+    }
+}
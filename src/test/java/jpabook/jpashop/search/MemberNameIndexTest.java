@@ -0,0 +1,108 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * 인덱스는 커밋된 뒤에 갱신돼서 @Transactional 안 붙임
+ * 기동 때 만드는 인덱스는 백그라운드라 테스트마다 먼저 다시 만들어둔다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class MemberNameIndexTest {
+
+    @Autowired MemberNameIndex memberNameIndex;
+    @Autowired MemberService memberService;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+
+    @Before
+    public void setUp() {
+        memberNameIndex.rebuild();
+    }
+
+    @Test
+    public void 이름_부분일치() throws Exception {
+        // given
+        String suffix = String.valueOf(System.nanoTime());
+        Long chulsoo = join("김철수" + suffix);
+        Long younghee = join("이영희" + suffix);
+
+        // when
+        Optional<List<Long>> found = memberNameIndex.findMemberIds("철수" + suffix, 100);
+
+        // then
+        assertEquals(List.of(chulsoo), found.get());
+        assertEquals(List.of(younghee), memberNameIndex.findMemberIds("영희" + suffix, 100).get());
+        assertTrue(memberNameIndex.findMemberIds("철수" + suffix + "x", 100).get().isEmpty());
+    }
+
+    @Test
+    public void 이름변경_반영() throws Exception {
+        // given
+        String suffix = String.valueOf(System.nanoTime());
+        Long memberId = join("변경전" + suffix);
+
+        // when
+        memberService.update(memberId, "변경후" + suffix);
+
+        // then
+        assertTrue(memberNameIndex.findMemberIds("변경전" + suffix, 100).get().isEmpty());
+        assertEquals(List.of(memberId), memberNameIndex.findMemberIds("변경후" + suffix, 100).get());
+    }
+
+    @Test
+    public void 한글자_검색어는_like로() throws Exception {
+        assertTrue(memberNameIndex.findMemberIds("김", 100).isEmpty());
+    }
+
+    @Test
+    public void 주문검색_회원이름() throws Exception {
+        // given
+        String name = "주문검색" + System.nanoTime();
+        Long memberId = join(name);
+        Long orderId = orderService.order(memberId, createBook(), 1);
+
+        // when
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(name.substring(2)); // 앞 두글자 빼고 부분일치
+        List<Order> orders = orderService.findOrders(orderSearch);
+
+        // then
+        assertEquals(1, orders.size());
+        assertEquals(orderId, orders.get(0).getId());
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("검색 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,159 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.query.CategoryNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static jpabook.jpashop.support.QueryBudget.*;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CategoryServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired CategoryService categoryService;
+
+    @Test
+    public void 깊은_트리를_쿼리_한번에() throws Exception {
+        // given : 루트 - 자식 - 손자 ... 300단
+        int depth = 300;
+        Category root = category("깊은0", null);
+        Category parent = root;
+        for (int i = 1; i < depth; i++) {
+            parent = category("깊은" + i, parent);
+        }
+        Long leafId = parent.getId();
+        flushAndClear();
+
+        // when
+        AtomicReference<CategoryNode> tree = new AtomicReference<>();
+        assertStatements(1, () -> tree.set(categoryService.findTree(root.getId()).orElseThrow()));
+
+        // then
+        CategoryNode node = tree.get();
+        for (int i = 1; i < depth; i++) {
+            assertEquals(1, node.children().size());
+            node = node.children().get(0);
+        }
+        assertEquals(leafId, node.id());
+        assertEquals(depth - 1, node.depth());
+        assertTrue(node.children().isEmpty());
+        assertEquals(depth, tree.get().descendantIds().size());
+    }
+
+    @Test
+    public void 넓은_트리를_쿼리_한번에_두번째부터는_캐시() throws Exception {
+        // given : 루트 밑에 자식 50, 자식마다 손자 20
+        Category root = category("넓은", null);
+        for (int i = 0; i < 50; i++) {
+            Category child = category("자식" + i, root);
+            for (int j = 0; j < 20; j++) {
+                category("손자" + i + "-" + j, child);
+            }
+        }
+        flushAndClear();
+
+        // when
+        assertStatements(1, () -> categoryService.findTree(root.getId()));
+        AtomicReference<CategoryNode> cached = new AtomicReference<>();
+        assertStatements(0, () -> cached.set(categoryService.findTree(root.getId()).orElseThrow()));
+
+        // then
+        CategoryNode tree = cached.get();
+        assertEquals(50, tree.children().size());
+        assertTrue(tree.children().stream().allMatch(c -> c.children().size() == 20));
+        assertEquals(1 + 50 + 50 * 20, tree.descendantIds().size());
+        assertEquals("자식은 id 순", tree.children().stream().map(CategoryNode::id).sorted().toList(),
+                tree.children().stream().map(CategoryNode::id).toList());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void 캐시된_트리는_불변() throws Exception {
+        // given
+        Category root = category("불변", null);
+        category("자식", root);
+        flushAndClear();
+
+        // when
+        CategoryNode tree = categoryService.findTree(root.getId()).orElseThrow();
+        tree.children().clear();
+
+        // then
+        fail("캐시된 트리를 고칠 수 없어야 한다.");
+    }
+
+    @Test
+    public void 하위_카테고리_상품까지_N플러스1_없이() throws Exception {
+        // given : 루트 - 자식 10 - 손자 10씩, 손자마다 상품 1개, 공통 상품은 여러 카테고리에
+        Category root = category("상품루트", null);
+        Book common = book("공통 JPA");
+        List<Long> itemIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Category child = category("상품자식" + i, root);
+            child.getItems().add(common);
+            for (int j = 0; j < 10; j++) {
+                Category grandChild = category("상품손자" + i + "-" + j, child);
+                Book book = book("책" + i + "-" + j);
+                grandChild.getItems().add(book);
+                itemIds.add(book.getId());
+            }
+        }
+        Category other = category("다른루트", null);
+        other.getItems().add(book("다른 책"));
+        flushAndClear();
+        categoryService.findTree(root.getId()); // 트리는 캐시에
+
+        // when
+        AtomicReference<List<Item>> items = new AtomicReference<>();
+        assertStatements(1, () -> items.set(categoryService.findItemsIncludingDescendants(root.getId(), 0, 1000)));
+
+        // then
+        itemIds.add(common.getId());
+        assertEquals("공통 상품은 한번만, 다른 트리 상품은 빼고", itemIds.stream().sorted().toList(),
+                items.get().stream().map(Item::getId).toList());
+    }
+
+    @Test
+    public void 없는_카테고리() throws Exception {
+        assertTrue(categoryService.findTree(-1L).isEmpty());
+        assertTrue(categoryService.findItemsIncludingDescendants(-1L, 0, 100).isEmpty());
+    }
+
+    private Category category(String name, Category parent) {
+        Category category = new Category();
+        category.setName(name);
+        if (parent != null) {
+            parent.addChildCategory(category);
+        }
+        em.persist(category);
+        return category;
+    }
+
+    private Book book(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book;
+    }
+
+    private void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,113 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+
+/**
+ * 2차 캐시는 커밋돼야 들어가서 @Transactional 안 붙임
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ItemServiceCacheTest {
+
+    @Autowired ItemService itemService;
+    @Autowired EntityManagerFactory emf;
+    @Autowired ItemRepository itemRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void 상품단건조회_2차캐시() throws Exception {
+        // given
+        Long itemId = createBook("캐시 JPA", 10000);
+        itemService.findOne(itemId);
+
+        // when
+        long before = statistics.getPrepareStatementCount();
+        Book book = (Book) itemService.findOne(itemId);
+
+        // then
+        assertEquals("2차 캐시에서 꺼내면 쿼리가 안나간다", 0, statistics.getPrepareStatementCount() - before);
+        assertEquals("캐시 JPA", book.getName());
+    }
+
+    @Test
+    public void 상품목록_쿼리캐시() throws Exception {
+        // given
+        createBook("목록 JPA", 10000);
+        int size = itemService.findItems().size();
+
+        // when
+        long before = statistics.getPrepareStatementCount();
+        int cachedSize = itemService.findItems().size();
+
+        // then
+        assertEquals(0, statistics.getPrepareStatementCount() - before);
+        assertEquals(size, cachedSize);
+    }
+
+    @Test
+    public void 상품수정하면_캐시갱신() throws Exception {
+        // given
+        Long itemId = createBook("수정 JPA", 10000);
+        int size = itemService.findItems().size();
+        itemService.findOne(itemId);
+
+        // when
+        itemService.updateItem(itemId, "수정 JPA", 20000, 10);
+        createBook("추가 JPA", 10000);
+
+        // then
+        assertEquals(20000, itemService.findOne(itemId).getPrice());
+        assertEquals("item 테이블이 바뀌면 쿼리 캐시 무효화", size + 1, itemService.findItems().size());
+    }
+
+    @Test
+    public void 재고차감은_그_상품만_캐시에서_뺀다() throws Exception {
+        // given
+        Long orderedId = createBook("차감 JPA", 10000);
+        Long otherId = createBook("안차감 JPA", 10000);
+        itemService.findOne(orderedId);
+        itemService.findOne(otherId);
+        Cache cache = emf.getCache();
+        assertTrue(cache.contains(Item.class, otherId));
+
+        // when
+        boolean decreased = transactionTemplate.execute(status -> itemRepository.decreaseStock(orderedId, 3));
+
+        // then
+        assertTrue(decreased);
+        assertFalse("바뀐 상품은 캐시에서 빠진다", cache.contains(Item.class, orderedId));
+        assertTrue("다른 상품 캐시는 그대로", cache.contains(Item.class, otherId));
+        assertEquals(7, itemService.findOne(orderedId).getStockQuantity());
+    }
+
+    private Long createBook(String name, int price) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,193 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemStockShardRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.stock-shard.rebalance-interval=0")
+@Transactional
+public class ItemStockServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired ItemStockService itemStockService;
+    @Autowired ItemStockShardRepository itemStockShardRepository;
+    @Autowired OrderService orderService;
+
+    @Test
+    public void 샤딩하면_재고를_고르게_나눈다() throws Exception {
+        // given
+        Book book = createBook(10);
+
+        // when
+        itemStockService.shard(book.getId(), 4);
+
+        // then
+        assertEquals(List.of(3, 3, 2, 2), quantities(book.getId()));
+        assertEquals(10, itemStockService.getStock(book));
+        assertEquals("화면용 스냅샷", 10, book.getStockQuantity());
+    }
+
+    @Test
+    public void 샤딩된_상품_주문하고_취소하면_샤드로_돌아온다() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook(10);
+        itemStockService.shard(book.getId(), 4);
+
+        // when
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        int afterOrder = itemStockService.getStock(book);
+        orderService.cancelOrder(orderId);
+
+        // then
+        assertEquals(8, afterOrder);
+        assertEquals(10, itemStockService.getStock(book));
+        assertEquals("샤딩된 상품은 엔티티 재고를 안 건드린다", 10, book.getStockQuantity());
+    }
+
+    @Test
+    public void 샤드하나로_모자라면_여러_샤드에서_나눠뺀다() throws Exception {
+        // given
+        Book book = createBook(8);
+        itemStockService.shard(book.getId(), 4); // 2,2,2,2
+
+        // when
+        boolean taken = itemStockService.decrease(book, 7);
+        boolean overTaken = itemStockService.decrease(book, 2);
+
+        // then
+        assertTrue(taken);
+        assertFalse("남은 재고보다 많이는 못뺀다", overTaken);
+        assertEquals(1, itemStockService.getStock(book));
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 샤딩된_상품_재고수량초과() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook(3);
+        itemStockService.shard(book.getId(), 2);
+
+        // when
+        orderService.orderWithStockReservation(member.getId(), book.getId(), 4);
+
+        // then
+        fail("재고 수량 부족 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 리밸런스하면_바닥난_샤드를_채운다() throws Exception {
+        // given
+        Book book = createBook(8);
+        itemStockService.shard(book.getId(), 4);
+        itemStockShardRepository.decrease(book.getId(), 0, 2); // 0,2,2,2
+
+        // when
+        boolean moved = itemStockService.rebalance(book.getId());
+        boolean movedAgain = itemStockService.rebalance(book.getId());
+
+        // then
+        assertTrue(moved);
+        assertFalse("이미 고르면 안 옮긴다", movedAgain);
+        assertEquals(List.of(2, 2, 1, 1), quantities(book.getId()));
+    }
+
+    @Test
+    public void 샤딩을_끄면_샤드_합계가_상품_재고로() throws Exception {
+        // given
+        Book book = createBook(10);
+        itemStockService.shard(book.getId(), 4);
+        itemStockService.decrease(book, 3);
+
+        // when
+        itemStockService.unshard(book.getId());
+
+        // then
+        assertFalse(book.isStockSharded());
+        assertEquals(7, book.getStockQuantity());
+        assertTrue(itemStockService.findShards(book.getId()).isEmpty());
+    }
+
+    @Test
+    public void 다시_샤딩한_사이에_취소해도_재고가_안사라진다() throws Exception {
+        // given : 샤드 16개일 때 읽어둔 상품으로, 그 사이 샤드를 1개로 다시 나눈다.
+        Book book = createBook(10);
+        itemStockService.shard(book.getId(), 16);
+        itemStockService.decrease(book, 2);
+        Book stale = staleCopy(book.getId());
+        itemStockService.shard(book.getId(), 1);
+
+        // when
+        itemStockService.increase(stale, 2);
+
+        // then
+        assertEquals(List.of(10), quantities(book.getId()));
+    }
+
+    @Test
+    public void 샤딩을_끈_사이에_취소하면_상품_재고로() throws Exception {
+        // given
+        Book book = createBook(10);
+        itemStockService.shard(book.getId(), 4);
+        itemStockService.decrease(book, 2);
+        Book stale = staleCopy(book.getId());
+        itemStockService.unshard(book.getId());
+
+        // when
+        itemStockService.increase(stale, 2);
+
+        // then
+        Book current = em.find(Book.class, book.getId());
+        assertFalse(current.isStockSharded());
+        assertEquals(10, current.getStockQuantity());
+    }
+
+    /**
+     * 다른 트랜잭션이 먼저 읽어둔 상품 (샤드 수가 지금 값이 아닐 수 있다)
+     */
+    private Book staleCopy(Long itemId) {
+        em.flush();
+        em.clear();
+        Book stale = em.find(Book.class, itemId);
+        em.detach(stale);
+        return stale;
+    }
+
+    private List<Integer> quantities(Long itemId) {
+        return itemStockService.findShards(itemId).stream()
+                .map(ItemStockShard::getQuantity)
+                .toList();
+    }
+
+    private Book createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("한정판 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+}
@@ -0,0 +1,122 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitor.QueryCount;
+import jpabook.jpashop.monitor.QueryCountHolder;
+import jpabook.jpashop.support.CommittedTestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static jpabook.jpashop.support.QueryBudget.*;
+import static org.junit.Assert.*;
+
+/**
+ * order()를 주문마다 트랜잭션으로 부르는 것과 비교해야 해서 @Transactional 안 붙임
+ * 만든 회원/상품(과 거기 걸린 주문)은 @After에서 지운다.(CommittedTestData)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderServiceBulkTest {
+
+    private static final int ORDERS = 1000;
+    private static final int STOCK = 100_000;
+
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    CommittedTestData testData;
+
+    @Before
+    public void setUp() {
+        testData = new CommittedTestData(transactionManager, em);
+    }
+
+    @After
+    public void tearDown() {
+        testData.deleteAll();
+    }
+
+    @Test
+    public void 대량주문() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId1 = createBook();
+        Long itemId2 = createBook();
+        List<BulkOrderDto> requests = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            requests.add(new BulkOrderDto(memberId, List.of(
+                    new BulkOrderDto.Line(itemId1, 1),
+                    new BulkOrderDto.Line(itemId2, 2))));
+        }
+
+        // when
+        List<Long> orderIds = new ArrayList<>();
+        // 주문 1건당 orders 1 + delivery 1 + order_item 2 + order_summary 1 row지만
+        // insert는 batch_size(100)씩, 회원/상품 조회는 청크(500)마다 한번, 시퀀스는 50개씩이라 statement는 주문 수보다 훨씬 적다.
+        assertMaxStatements(ORDERS / 4, () -> orderIds.addAll(orderService.bulkOrder(requests)));
+
+        // then
+        assertEquals(ORDERS, orderIds.size());
+        assertEquals(STOCK - ORDERS, itemService.findOne(itemId1).getStockQuantity());
+        assertEquals(STOCK - 2 * ORDERS, itemService.findOne(itemId2).getStockQuantity());
+    }
+
+    @Test
+    public void 단건주문_반복_비교() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook();
+
+        // when
+        // 트랜잭션이 주문마다 따로라 insert를 묶을 수 없다. 주문마다 orders, delivery, order_item insert가 하나씩
+        QueryCount count = QueryCountHolder.measure(() -> {
+            for (int i = 0; i < ORDERS; i++) {
+                orderService.order(memberId, itemId, 1);
+            }
+        });
+
+        // then
+        assertEquals(STOCK - ORDERS, itemService.findOne(itemId).getStockQuantity());
+        assertTrue("주문마다 insert 3번 이상 " + count, count.getStatements() >= 3L * ORDERS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 대량주문_없는상품() throws Exception {
+        Long memberId = createMember();
+
+        orderService.bulkOrder(List.of(new BulkOrderDto(memberId, List.of(new BulkOrderDto.Line(-1L, 1)))));
+
+        fail("없는 상품이면 예외가 발생해야 한다.");
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("대량주문회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return testData.member(memberService.join(member));
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("대량 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(STOCK);
+        itemService.saveItem(book);
+        return testData.item(book.getId());
+    }
+}
@@ -0,0 +1,232 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.support.CommittedTestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 여러 스레드가 각자 커밋해야 해서 @Transactional 안 붙임
+ * 만든 회원/상품(과 거기 걸린 주문)은 @After에서 지운다.(CommittedTestData)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderServiceConcurrencyTest {
+
+    private static final int STOCK = 100;
+    private static final int ORDERS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired ItemStockService itemStockService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired ItemRepository itemRepository;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    CommittedTestData testData;
+
+    @Before
+    public void setUp() {
+        testData = new CommittedTestData(transactionManager, em);
+    }
+
+    @After
+    public void tearDown() {
+        testData.deleteAll();
+    }
+
+    @Test
+    public void 동시주문_재고예약_초과판매없음() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+
+        // when
+        Result result = runConcurrently(() -> orderService.orderWithStockReservation(memberId, itemId, 1));
+
+        // then
+        assertEquals("재고만큼만 주문 성공", STOCK, result.success.get());
+        assertEquals("나머지는 재고부족", ORDERS - STOCK, result.notEnoughStock.get());
+        assertEquals(0, result.error.get());
+        assertEquals(0, itemService.findOne(itemId).getStockQuantity());
+        assertEquals("재고부족 주문은 롤백돼서 안 남는다", STOCK, memberRepository.countOrders(memberId));
+    }
+
+    @Test
+    public void 동시주문_재고샤딩_초과판매없음() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+        itemStockService.shard(itemId, 4);
+
+        // when
+        Result result = runConcurrently(() -> orderService.orderWithStockReservation(memberId, itemId, 1));
+
+        // then
+        assertEquals("재고만큼만 주문 성공", STOCK, result.success.get());
+        assertEquals("나머지는 재고부족", ORDERS - STOCK, result.notEnoughStock.get());
+        assertEquals(0, result.error.get());
+        assertEquals(0, itemStockService.getStock(itemService.findOne(itemId)));
+        assertEquals("재고부족 주문은 롤백돼서 안 남는다", STOCK, memberRepository.countOrders(memberId));
+    }
+
+    @Test
+    public void 동시주문_조회모으기_초과판매없음() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BatchedOrderService batchedOrderService = new BatchedOrderService(orderService, memberRepository, itemRepository,
+                registry, Duration.ofMillis(2), 100, 2, Duration.ofSeconds(5));
+
+        // when
+        Result result;
+        try {
+            result = runConcurrently(() -> batchedOrderService.order(memberId, itemId, 1));
+        } finally {
+            batchedOrderService.shutdown();
+        }
+
+        // then
+        DistributionSummary itemBatches = registry.get("batch.loader.size").tag("name", "item").summary(); // 조회 횟수
+        assertEquals("재고만큼만 주문 성공", STOCK, result.success.get());
+        assertEquals("나머지는 재고부족", ORDERS - STOCK, result.notEnoughStock.get());
+        assertEquals(0, result.error.get());
+        assertEquals(0, itemService.findOne(itemId).getStockQuantity());
+        assertEquals("재고부족 주문은 롤백돼서 안 남는다", STOCK, memberRepository.countOrders(memberId));
+        assertTrue("상품 조회가 주문 수보다 적게 나가야 한다", itemBatches.count() < ORDERS);
+    }
+
+    /**
+     * 리밸런스/재샤딩/취소가 같은 상품에 겹쳐도 락 순서가 같아서(item 행 -> 샤드) 데드락 없이 끝나고 재고도 안 샌다.
+     * 샤드 수를 바꾸는 사이에 취소하면 없는 샤드를 찍어서 increaseLocked로 간다.
+     */
+    @Test
+    public void 리밸런스와_재샤딩_취소가_겹쳐도_데드락없음() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+        itemStockService.shard(itemId, 8);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            orderIds.add(orderService.orderWithStockReservation(memberId, itemId, 1));
+        }
+
+        // when
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < orderIds.size(); i++) {
+            Long orderId = orderIds.get(i);
+            tasks.add(() -> orderService.cancelOrder(orderId));
+            tasks.add(() -> itemStockService.rebalance(itemId));
+            if (i % 4 == 0) {
+                int shards = i % 8 == 0 ? 2 : 8;
+                tasks.add(() -> itemStockService.shard(itemId, shards));
+            }
+        }
+        Result result = runConcurrently(tasks);
+
+        // then
+        assertEquals("락 타임아웃/데드락 없음", 0, result.error.get());
+        assertEquals(tasks.size(), result.success.get());
+        assertEquals("취소한 재고는 다 돌아왔다", STOCK, itemStockService.getStock(itemService.findOne(itemId)));
+    }
+
+    /**
+     * 기존 엔티티 방식 : 읽고-빼고-쓰기라 락이 없으면 서로 덮어쓴다.(lost update)
+     * 몇 건이 덮어써질지는 타이밍에 따라 달라서 정확한 값 대신 성립해야 하는 관계만 본다.
+     * 커밋된 주문 수는 성공 수와 같고, 실제로 빠진 재고는 그보다 많을 수 없다.(덮어써진 만큼 적다)
+     */
+    @Test
+    public void 동시주문_엔티티방식은_재고를_덮어쓸수있다() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+
+        // when
+        Result result = runConcurrently(() -> orderService.order(memberId, itemId, 1));
+
+        // then
+        int stock = itemService.findOne(itemId).getStockQuantity();
+        assertEquals("성공한 주문은 다 커밋됐다", result.success.get(), memberRepository.countOrders(memberId));
+        assertTrue("빠진 재고 <= 성공한 주문 (덮어써진 만큼 덜 빠진다)", STOCK - stock <= result.success.get());
+        assertTrue(stock >= 0);
+    }
+
+    private Result runConcurrently(Runnable order) throws InterruptedException {
+        return runConcurrently(Collections.nCopies(ORDERS, order));
+    }
+
+    private Result runConcurrently(List<Runnable> tasks) throws InterruptedException {
+        Result result = new Result();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (Runnable task : tasks) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    task.run();
+                    result.success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    result.notEnoughStock.incrementAndGet();
+                } catch (Exception e) {
+                    result.error.incrementAndGet(); // 락 타임아웃 등
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("동시주문회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return testData.member(memberService.join(member));
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("인기 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return testData.item(book.getId());
+    }
+
+    static class Result {
+        final AtomicInteger success = new AtomicInteger();
+        final AtomicInteger notEnoughStock = new AtomicInteger();
+        final AtomicInteger error = new AtomicInteger();
+    }
+}
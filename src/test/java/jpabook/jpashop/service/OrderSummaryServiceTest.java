@@ -0,0 +1,159 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static jpabook.jpashop.support.QueryBudget.assertStatements;
+import static org.junit.Assert.*;
+
+/**
+ * 요약은 커밋 직전에 갱신돼서 @Transactional 안 붙임
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSummaryServiceTest {
+
+    @Autowired OrderService orderService;
+    @Autowired OrderSummaryService orderSummaryService;
+    @Autowired OrderSummaryRepository orderSummaryRepository;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 주문하면_요약생성() throws Exception {
+        // given
+        Long memberId = createMember("요약회원");
+        Long itemId = createBook(10000, 10);
+
+        // when
+        Long orderId = orderService.order(memberId, itemId, 3);
+
+        // then
+        OrderSummary summary = findSummary(orderId);
+        assertEquals("요약회원", summary.getMemberName());
+        assertEquals(OrderStatus.ORDER, summary.getStatus());
+        assertEquals(1, summary.getItemCount());
+        assertEquals(10000 * 3, summary.getTotalPrice());
+    }
+
+    @Test
+    public void 취소_배송상태변경하면_요약갱신() throws Exception {
+        // given
+        Long orderId = orderService.order(createMember("요약회원"), createBook(10000, 10), 1);
+
+        // when
+        orderService.changeDeliveryStatus(orderId, DeliveryStatus.READY);
+        orderService.cancelOrder(orderId);
+
+        // then
+        OrderSummary summary = findSummary(orderId);
+        assertEquals(OrderStatus.CANCEL, summary.getStatus());
+        assertEquals(DeliveryStatus.READY, summary.getDeliveryStatus());
+    }
+
+    @Test
+    public void 요약을_쓴_뒤에_롤백되면_요약도_없음() throws Exception {
+        // given
+        Long memberId = createMember("롤백회원");
+        Long itemId = createBook(10000, 10);
+        AtomicReference<Long> orderId = new AtomicReference<>();
+
+        // when : 주문 이벤트로 요약까지 쓴 다음 커밋 직전에 실패시킨다.
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                orderId.set(orderService.order(memberId, itemId, 1));
+                // 요약 리스너보다 나중에 등록돼서 요약을 쓴 다음에 돈다.
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        assertEquals("같은 트랜잭션 안에서는 요약이 있다", 1,
+                                orderSummaryRepository.findAllById(List.of(orderId.get())).size());
+                        throw new IllegalStateException("강제 롤백");
+                    }
+                });
+            });
+            fail("커밋 직전 예외로 롤백돼야 한다.");
+        } catch (IllegalStateException e) {
+        }
+
+        // then
+        assertNull(orderRepository.findOne(orderId.get()));
+        assertTrue(orderSummaryRepository.findAllById(List.of(orderId.get())).isEmpty());
+    }
+
+    @Test
+    public void 회원이름을_바꾸면_요약도_갱신() throws Exception {
+        // given
+        Long memberId = createMember("개명전");
+        Long orderId = orderService.order(memberId, createBook(10000, 10), 1);
+        String newName = "개명후" + System.nanoTime();
+
+        // when
+        memberService.update(memberId, newName);
+
+        // then
+        assertEquals(newName, findSummary(orderId).getMemberName());
+    }
+
+    @Test
+    public void 재생성() throws Exception {
+        // given
+        Long orderId = orderService.order(createMember("재생성회원"), createBook(10000, 10), 2);
+
+        // when
+        long rebuilt = orderSummaryService.rebuild(1);
+
+        // then
+        assertTrue(rebuilt >= 1);
+        assertEquals(10000 * 2, findSummary(orderId).getTotalPrice());
+    }
+
+    @Test
+    public void 요약페이지는_쿼리한방() throws Exception {
+        orderService.order(createMember("요약회원"), createBook(10000, 10), 1);
+
+        assertStatements(1, () -> orderSummaryService.findPage(null, 100));
+    }
+
+    private OrderSummary findSummary(Long orderId) {
+        List<OrderSummary> found = orderSummaryRepository.findAllById(List.of(orderId));
+        assertEquals(1, found.size());
+        return found.get(0);
+    }
+
+    private Long createMember(String name) {
+        Member member = new Member();
+        member.setName(name + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook(int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName("요약 JPA");
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
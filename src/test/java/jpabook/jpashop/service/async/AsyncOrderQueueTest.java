@@ -0,0 +1,122 @@
+package jpabook.jpashop.service.async;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderAttempt;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * 워커 스레드가 따로 커밋해서 @Transactional 안 붙임
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.async-order.enabled=true")
+public class AsyncOrderQueueTest {
+
+    private static final int STOCK = 100;
+    private static final int ORDERS = 150;
+
+    @Autowired AsyncOrderQueue asyncOrderQueue;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+
+    @Test
+    public void 비동기주문_마이크로배치_처리() throws Exception {
+        // given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+
+        // when
+        List<String> pendingIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            pendingIds.add(asyncOrderQueue.submit(memberId, itemId, 1));
+        }
+        List<PendingOrder> results = awaitAll(pendingIds);
+
+        // then
+        long completed = results.stream().filter(r -> r.getStatus() == PendingOrder.Status.COMPLETED).count();
+        long failed = results.stream().filter(r -> r.getStatus() == PendingOrder.Status.FAILED).count();
+        assertEquals("재고만큼만 주문 성공", STOCK, completed);
+        assertEquals("나머지는 재고부족", ORDERS - STOCK, failed);
+        assertEquals(0, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 큐가_꽉차면_거절() throws Exception {
+        // given : 워커가 첫 배치를 붙잡고 있는 동안 크기 1짜리 큐를 채운다.
+        CountDownLatch release = new CountDownLatch(1);
+        OrderService blockingOrderService = new OrderService(null, null, null, null, null) {
+            @Override
+            public List<OrderAttempt> orderBatch(List<OrderCommand> commands) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return commands.stream().map(c -> OrderAttempt.failure("테스트")).toList();
+            }
+        };
+        AsyncOrderQueue queue = new AsyncOrderQueue(blockingOrderService, 1, 1, 1, Duration.ofMinutes(1));
+        try {
+            queue.submit(1L, 1L, 1);
+            while (queue.size() > 0) {
+                Thread.sleep(10);
+            }
+            queue.submit(1L, 1L, 1);
+
+            // when
+            queue.submit(1L, 1L, 1);
+            fail("큐가 꽉 차면 예외가 발생해야 한다.");
+        } catch (OrderQueueFullException e) {
+            // then
+            assertEquals(1, queue.size());
+        } finally {
+            release.countDown();
+            queue.shutdown();
+        }
+    }
+
+    private List<PendingOrder> awaitAll(List<String> pendingIds) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            List<PendingOrder> results = pendingIds.stream().map(asyncOrderQueue::status).toList();
+            if (results.stream().noneMatch(r -> r.getStatus() == PendingOrder.Status.PENDING)) {
+                return results;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("비동기 주문이 시간 안에 처리되지 않음");
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("비동기회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("비동기 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
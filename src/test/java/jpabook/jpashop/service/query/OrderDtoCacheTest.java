@@ -0,0 +1,129 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 커밋 후 무효화를 봐야해서 @Transactional 안 붙임
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderDtoCacheTest {
+
+    @Autowired OrderDtoCache orderDtoCache;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+
+    @Before
+    public void setUp() {
+        orderDtoCache.invalidateAll();
+    }
+
+    @Test
+    public void 같은_요청은_캐시에서() throws Exception {
+        // given
+        orderDtoCache.findAllByDto_optimization(0, 10);
+        long missCount = orderDtoCache.stats().missCount();
+
+        // when
+        orderDtoCache.findAllByDto_optimization(0, 10);
+
+        // then
+        assertEquals("두번째는 DB 안감", missCount, orderDtoCache.stats().missCount());
+    }
+
+    @Test
+    public void 동시요청은_한번만_로딩() throws Exception {
+        // given
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long loadCount = orderDtoCache.stats().loadCount();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                return orderDtoCache.findOrderDtos(0, 100);
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(loadCount + 1, orderDtoCache.stats().loadCount());
+    }
+
+    @Test
+    public void 주문하면_무효화() throws Exception {
+        // given
+        Member member = new Member();
+        member.setName("캐시회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberService.join(member);
+        Book book = new Book();
+        book.setName("캐시 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        int before = orderDtoCache.findAllByDto_optimization(0, null).size();
+
+        // when
+        Long orderId = orderService.order(member.getId(), book.getId(), 1);
+
+        // then
+        List<OrderQueryDto> after = orderDtoCache.findAllByDto_optimization(0, null);
+        assertEquals(before + 1, after.size());
+        assertTrue(after.stream().anyMatch(o -> o.getOrderId().equals(orderId)));
+    }
+
+    @Test
+    public void 캐시된_목록은_못_바꾼다() throws Exception {
+        // given
+        Long orderId = createOrder();
+
+        // when
+        List<OrderQueryDto> cached = orderDtoCache.findAllByDto_optimization(0, null);
+
+        // then
+        OrderQueryDto order = cached.stream().filter(o -> o.getOrderId().equals(orderId)).findFirst().orElseThrow();
+        assertThrows(UnsupportedOperationException.class, cached::clear);
+        assertThrows(UnsupportedOperationException.class, () -> order.getOrderItems().clear());
+        assertThrows(UnsupportedOperationException.class, () -> orderDtoCache.findOrderDtos(0, 10).clear());
+        assertSame("같은 키는 같은 목록", cached, orderDtoCache.findAllByDto_optimization(0, null));
+    }
+
+    private Long createOrder() {
+        Member member = new Member();
+        member.setName("캐시회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberService.join(member);
+        Book book = new Book();
+        book.setName("캐시 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return orderService.order(member.getId(), book.getId(), 1);
+    }
+}
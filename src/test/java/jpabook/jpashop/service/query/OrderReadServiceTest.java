@@ -0,0 +1,114 @@
+package jpabook.jpashop.service.query;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.IdThenFetchPager;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderReadServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OrderReadService orderReadService;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Book book = new Book();
+        book.setName("읽기 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        for (int i = 0; i < 3; i++) {
+            Member member = new Member();
+            member.setName("읽기회원" + i);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            orderIds.add(orderService.order(member.getId(), book.getId(), i + 1));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void 영속성_컨텍스트에_안_남고_그래프는_다_채워져있다() throws Exception {
+        // when
+        List<Order> orders = orderReadService.findAllWithItem(0, 1000).content();
+
+        // then
+        assertEquals("영속성 컨텍스트는 비어있다", 0, em.unwrap(Session.class).getStatistics().getEntityCount());
+        Order order = orders.stream().filter(o -> o.getId().equals(orderIds.get(2))).findFirst().orElseThrow();
+        assertFalse(em.contains(order));
+        assertTrue(Hibernate.isInitialized(order.getMember()));
+        assertTrue(Hibernate.isInitialized(order.getDelivery()));
+        assertTrue(Hibernate.isInitialized(order.getOrderItems()));
+        OrderItem orderItem = order.getOrderItems().get(0);
+        assertTrue(Hibernate.isInitialized(orderItem.getItem()));
+        assertEquals("읽기회원2", order.getMember().getName());
+        assertEquals(3, orderItem.getCount());
+        assertEquals("읽기 JPA", orderItem.getItem().getName());
+    }
+
+    @Test
+    public void 커서_페이지는_최신순() throws Exception {
+        // when
+        List<Order> first = orderReadService.findAllWithItem((OrderCursor) null, 2).content();
+        List<Order> second = orderReadService.findAllWithItem(OrderCursor.of(first.get(1)), 2).content();
+
+        // then
+        assertEquals(2, first.size());
+        assertTrue(first.get(0).getId() > first.get(1).getId());
+        assertTrue(second.isEmpty() || second.get(0).getId() < first.get(1).getId());
+        assertTrue(first.stream().allMatch(o -> Hibernate.isInitialized(o.getOrderItems())));
+    }
+
+    @Test
+    public void 패치조인에서_빠진_주문이_있어도_커서는_id_페이지로_넘어간다() throws Exception {
+        // given : 제일 최신 주문이 상품 없는 주문 (주문상품 패치조인에서 빠진다)
+        Member member = new Member();
+        member.setName("빈주문회원");
+        em.persist(member);
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order empty = Order.createOrder(member, delivery);
+        empty.setOrderDate(LocalDateTime.now().plusDays(1));
+        em.persist(empty);
+        em.flush();
+        em.clear();
+
+        // when
+        IdThenFetchPager.Page<Order, OrderCursor> first = orderReadService.findAllWithItem((OrderCursor) null, 1);
+        IdThenFetchPager.Page<Order, OrderCursor> second = orderReadService.findAllWithItem(first.lastKey(), 1);
+
+        // then
+        assertTrue("상품 없는 주문은 응답에서 빠진다", first.content().isEmpty());
+        assertTrue("id 페이지는 꽉 찼으니 다음 페이지가 있다", first.hasNext(1));
+        assertEquals(empty.getId(), first.lastKey().getOrderId());
+        assertEquals("다음 페이지는 그 다음 주문부터", orderIds.get(2), second.content().get(0).getId());
+    }
+}
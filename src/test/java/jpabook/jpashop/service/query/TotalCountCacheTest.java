@@ -0,0 +1,100 @@
+package jpabook.jpashop.service.query;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.support.CommittedTestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * 커밋 후 무효화를 봐야해서 @Transactional 안 붙임, 만든 데이터는 @After에서 지운다.
+ * ttl(10s)보다 짧은 사이에 다시 세는지 본다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TotalCountCacheTest {
+
+    @Autowired TotalCountCache totalCountCache;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    CommittedTestData testData;
+
+    @Before
+    public void setUp() {
+        testData = new CommittedTestData(transactionManager, em);
+    }
+
+    @After
+    public void tearDown() {
+        testData.deleteAll();
+    }
+
+    @Test
+    public void 주문하면_주문_건수를_다시_센다() throws Exception {
+        // given
+        Long memberId = testData.member(createMember());
+        Long itemId = testData.item(createBook());
+        long before = totalCountCache.get(true, TotalCountCache.ORDERS, orderRepository::count);
+
+        // when
+        orderService.order(memberId, itemId, 1);
+
+        // then
+        assertEquals(before + 1, totalCountCache.get(true, TotalCountCache.ORDERS, orderRepository::count).longValue());
+    }
+
+    @Test
+    public void 주문이_롤백되면_그대로() throws Exception {
+        // given
+        Long memberId = testData.member(createMember());
+        Long itemId = testData.item(createBook());
+        long before = totalCountCache.get(true, TotalCountCache.ORDERS, orderRepository::count);
+
+        // when
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(memberId, itemId, 11)); // 재고 10
+
+        // then
+        assertEquals(before, totalCountCache.get(true, TotalCountCache.ORDERS, () -> -1L).longValue());
+    }
+
+    @Test
+    public void count_false면_null() throws Exception {
+        assertNull(totalCountCache.get(false, TotalCountCache.ORDERS, orderRepository::count));
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("건수회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("건수 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
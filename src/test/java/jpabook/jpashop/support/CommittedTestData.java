@@ -0,0 +1,81 @@
+package jpabook.jpashop.support;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Transactional 없이 커밋하는 테스트(동시성, 워커 스레드)가 만든 데이터 정리
+ * 다른 테스트가 개수/재고를 세니까 테스트에서 만든 회원/상품을 등록해두고 @After에서 deleteAll() 한다.
+ * 그 회원/상품에 걸린 주문(주문상품, 배송, 주문 요약)까지 같이 지운다.
+ */
+public class CommittedTestData {
+
+    private final TransactionTemplate tx;
+    private final EntityManager em;
+    private final Set<Long> memberIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> itemIds = ConcurrentHashMap.newKeySet();
+
+    public CommittedTestData(PlatformTransactionManager transactionManager, EntityManager em) {
+        this.tx = new TransactionTemplate(transactionManager);
+        this.em = em;
+    }
+
+    public Long member(Long memberId) {
+        memberIds.add(memberId);
+        return memberId;
+    }
+
+    public Long item(Long itemId) {
+        itemIds.add(itemId);
+        return itemId;
+    }
+
+    public void deleteAll() {
+        tx.executeWithoutResult(status -> {
+            Set<Long> orderIds = new HashSet<>();
+            if (!memberIds.isEmpty()) {
+                orderIds.addAll(ids("select o.id from Order o where o.member.id in :ids", memberIds));
+            }
+            if (!itemIds.isEmpty()) {
+                orderIds.addAll(ids("select oi.order.id from OrderItem oi where oi.item.id in :ids", itemIds));
+            }
+            if (!orderIds.isEmpty()) {
+                List<Long> deliveryIds = ids("select o.delivery.id from Order o where o.id in :ids", orderIds);
+                delete("delete from OrderSummary s where s.orderId in :ids", orderIds);
+                delete("delete from OrderItem oi where oi.order.id in :ids", orderIds);
+                delete("delete from Order o where o.id in :ids", orderIds);
+                delete("delete from Delivery d where d.id in :ids", deliveryIds);
+            }
+            if (!itemIds.isEmpty()) {
+                delete("delete from ItemStockShard s where s.item.id in :ids", itemIds);
+                delete("delete from Item i where i.id in :ids", itemIds);
+            }
+            if (!memberIds.isEmpty()) {
+                delete("delete from Member m where m.id in :ids", memberIds);
+            }
+        });
+        memberIds.clear();
+        itemIds.clear();
+    }
+
+    private List<Long> ids(String jpql, Collection<Long> ids) {
+        return em.createQuery(jpql, Long.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    private void delete(String jpql, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            em.createQuery(jpql)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+    }
+}
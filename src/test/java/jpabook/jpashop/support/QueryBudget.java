@@ -0,0 +1,41 @@
+package jpabook.jpashop.support;
+
+import jpabook.jpashop.monitor.QueryCount;
+import jpabook.jpashop.monitor.QueryCountHolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * 테스트에서 쿼리 예산 검증
+ * QueryBudget.assertStatements(2, () -> orderQueryRepository.findAllByDto_optimization());
+ * 지연로딩까지 세려면 블록 안에서 그래프를 다 건드려야 하고, 영속성 컨텍스트는 미리 비워두어야 한다.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static QueryCount assertStatements(long expected, Runnable block) {
+        QueryCount count = QueryCountHolder.measure(block);
+        assertEquals("statement 수 " + count, expected, count.getStatements());
+        return count;
+    }
+
+    public static QueryCount assertMaxStatements(long max, Runnable block) {
+        QueryCount count = QueryCountHolder.measure(block);
+        assertTrue("statement " + max + "개 이하여야 한다. " + count, count.getStatements() <= max);
+        return count;
+    }
+
+    public static QueryCount assertNoNPlusOne(Runnable block) {
+        QueryCount count = QueryCountHolder.measure(block);
+        assertFalse("N+1 의심 : " + count.getNPlusOneSuspects(), count.hasNPlusOne());
+        return count;
+    }
+
+    public static QueryCount assertNPlusOne(Runnable block) {
+        QueryCount count = QueryCountHolder.measure(block);
+        assertTrue("N+1이 나와야 한다. " + count, count.hasNPlusOne());
+        return count;
+    }
+}